@@ -0,0 +1,145 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runner used to evolve a <code>Population</code> under a fixed time budget,
+ * for callers that need the best answer available by a deadline rather than
+ * an exact solution.
+ *
+ * The runner evolves generation after generation until a solution is found
+ * or the deadline passes.  The generation running at the deadline is cut
+ * short within a small batch of children, or after the elite
+ * <code>Chromosome</code> the local search is refining (see
+ * <code>Population.setDeadline(long)</code>).  The runner therefore
+ * overshoots the deadline by at most one batch or one local search,
+ * however long a full generation takes.  The best
+ * <code>Chromosome</code> found so far can be read at any time, and a run
+ * started with <code>start()</code> can be cancelled through its
+ * <code>Future</code>, which interrupts the evolution in the same way.
+ *
+ * Note that <code>PipelinedPopulation</code> only stops between
+ * generations.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+public class AnytimeRunner {
+
+	private final Population pop;
+	private volatile Chromosome best;
+	private volatile int generation;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param pop The population to evolve.  It must not be evolved by
+	 * anything else while the runner is running.
+	 */
+	public AnytimeRunner(Population pop) {
+		this.pop = pop;
+		this.best = pop.getBest();
+	}
+
+	/**
+	 * Method used to start evolving on the given executor.  The returned
+	 * <code>Future</code> completes with the best <code>Chromosome</code>
+	 * once a solution is found or the time budget is spent.  Cancelling it
+	 * with interruption stops the evolution within a batch of children;
+	 * <code>getBest()</code> still returns the best found until then.
+	 *
+	 * @param executor The executor to run on.
+	 * @param timeout The time budget.
+	 * @param unit The unit of the time budget.
+	 *
+	 * @return The pending result.
+	 */
+	public Future<Chromosome> start(ExecutorService executor, long timeout,
+			TimeUnit unit) {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		return executor.submit(new Callable<Chromosome>() {
+			@Override
+			public Chromosome call() {
+				return run(deadline);
+			}
+		});
+	}
+
+	/**
+	 * Method used to evolve in the calling thread until a solution is found
+	 * or the time budget is spent.
+	 *
+	 * @param timeout The time budget.
+	 * @param unit The unit of the time budget.
+	 *
+	 * @return The best <code>Chromosome</code> found.
+	 */
+	public Chromosome run(long timeout, TimeUnit unit) {
+		return run(System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * Method used to retrieve the best <code>Chromosome</code> found so far.
+	 *
+	 * @return The best <code>Chromosome</code>.
+	 */
+	public Chromosome getBest() {
+		return best;
+	}
+
+	/**
+	 * Method to retrieve the number of generations evolved so far,
+	 * including a final generation that was cut short.
+	 *
+	 * @return The generation count.
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Helper method holding the evolution loop.
+	 */
+	private Chromosome run(long deadline) {
+		Thread self = Thread.currentThread();
+		pop.setDeadline(deadline);
+		try {
+			while (best.getFitness() != 0 && !self.isInterrupted()
+					&& System.nanoTime() - deadline < 0) {
+				pop.evolve();
+				best = pop.getBest();
+				++generation;
+			}
+		} finally {
+			pop.clearDeadline();
+		}
+
+		return best;
+	}
+}
@@ -0,0 +1,316 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A population that evolves asynchronously, without generations.
+ *
+ * Instead of building a new generation, sorting it and swapping it in, a
+ * number of worker threads continuously select parents from a single shared
+ * array of <code>Chromosome</code>s, breed a child and use it to replace a
+ * weaker member of the population.  Slots are replaced with a
+ * compare-and-set, and the best <code>Chromosome</code> is tracked the same
+ * way, so no thread ever waits for another at a barrier.
+ *
+ * Since a slot is only ever replaced by a fitter <code>Chromosome</code>, the
+ * best member of the population is never lost, which gives the same effect
+ * as elitism in <code>Population</code>.
+ *
+ * Note that this object is mutable and thread-safe.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+public class AsyncPopulation {
+
+	/** The size of the tournament. */
+	private static final int TOURNAMENT_SIZE = 3;
+
+	/** How many times a worker retries a lost compare-and-set on a slot. */
+	private static final int MAX_RETRIES = 2;
+
+	private final float crossover;
+	private final float mutation;
+	private final AtomicReferenceArray<Chromosome> slots;
+	private final AtomicReference<Chromosome> best;
+	private final AtomicLong children = new AtomicLong();
+
+	/** Set to stop the workers. */
+	private volatile boolean stopped;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param size The size of the population, where size > 0.
+	 * @param crossoverRatio The crossover ratio for the population during
+	 * evolution, where 0.0 <= crossoverRatio <= 1.0.
+	 * @param mutationRatio The mutation ratio for the population during
+	 * evolution, where 0.0 <= mutationRatio <= 1.0.
+	 */
+	public AsyncPopulation(int size, float crossoverRatio,
+			float mutationRatio) {
+		this(size, crossoverRatio, mutationRatio, Chromosome.DEFAULT_TARGET);
+	}
+
+	/**
+	 * Constructor used to evolve a population towards an arbitrary target
+	 * gene.
+	 *
+	 * @param size The size of the population, where size > 0.
+	 * @param crossoverRatio The crossover ratio for the population during
+	 * evolution, where 0.0 <= crossoverRatio <= 1.0.
+	 * @param mutationRatio The mutation ratio for the population during
+	 * evolution, where 0.0 <= mutationRatio <= 1.0.
+	 * @param target The target gene to evolve towards.
+	 */
+	public AsyncPopulation(int size, float crossoverRatio,
+			float mutationRatio, String target) {
+		this.crossover = crossoverRatio;
+		this.mutation = mutationRatio;
+
+		// Generate an initial population
+		char[] targetArr = target.toCharArray();
+		this.slots = new AtomicReferenceArray<Chromosome>(size);
+		Chromosome fittest = null;
+		for (int i = 0; i < size; i++) {
+			Chromosome c = Chromosome.generateRandom(targetArr);
+			slots.set(i, c);
+			if (fittest == null || c.compareTo(fittest) < 0) {
+				fittest = c;
+			}
+		}
+
+		this.best = new AtomicReference<Chromosome>(fittest);
+	}
+
+	/**
+	 * Method used to evolve the population with a number of worker threads
+	 * until a solution is found, the timeout elapses or <code>stop()</code>
+	 * is called.
+	 *
+	 * @param threads The number of worker threads, where threads > 0.
+	 * @param timeout The maximum amount of time to evolve for.
+	 * @param unit The unit of the timeout.
+	 *
+	 * @return The best <code>Chromosome</code> found.
+	 *
+	 * @throws InterruptedException Thrown if the calling thread is
+	 * interrupted while waiting for the workers, in which case they are
+	 * stopped.
+	 */
+	public Chromosome evolve(int threads, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		stopped = false;
+
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work(deadline);
+				}
+			}, "ga-async-" + i);
+			workers[i].start();
+		}
+
+		try {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		} finally {
+			stop();
+		}
+
+		return best.get();
+	}
+
+	/**
+	 * Method used to ask the worker threads to stop.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Method used to retrieve the fittest <code>Chromosome</code> found so
+	 * far.
+	 *
+	 * @return The fittest <code>Chromosome</code>.
+	 */
+	public Chromosome getBest() {
+		return best.get();
+	}
+
+	/**
+	 * Method to retrieve the number of children bred so far, which divided
+	 * by the time spent gives the throughput of the workers.
+	 *
+	 * @return The number of children bred.
+	 */
+	public long getChildren() {
+		return children.get();
+	}
+
+	/**
+	 * Method used to retrieve a sorted snapshot of the population.  Since
+	 * the workers may be replacing slots at the same time, the snapshot is
+	 * not necessarily consistent.
+	 *
+	 * @return A sorted copy of the population.
+	 */
+	public Chromosome[] getPopulation() {
+		Chromosome[] arr = new Chromosome[slots.length()];
+		for (int i = 0; i < arr.length; i++) {
+			arr[i] = slots.get(i);
+		}
+		Arrays.sort(arr);
+
+		return arr;
+	}
+
+	/**
+	 * Method to retrieve the crossover ratio for the population.
+	 *
+	 * @return The crossover ratio.
+	 */
+	public float getCrossover() {
+		return crossover;
+	}
+
+	/**
+	 * Method to retrieve the mutation ratio for the population.
+	 *
+	 * @return The mutation ratio.
+	 */
+	public float getMutation() {
+		return mutation;
+	}
+
+	/**
+	 * The worker loop.  Breeds children and inserts them into the
+	 * population until told to stop.
+	 */
+	private void work(long deadline) {
+		ThreadLocalRandom rand = ThreadLocalRandom.current();
+		long bred = 0;
+		long published = 0;
+
+		for (int i = 0; !stopped && best.get().getFitness() != 0; i++) {
+			// Only look at the clock every so often.
+			if ((i & 0xFF) == 0 && System.nanoTime() >= deadline) {
+				break;
+			}
+
+			Chromosome p1 = select(rand);
+			if (rand.nextFloat() <= crossover) {
+				Chromosome[] kids = p1.mate(select(rand));
+				insert(vary(kids[0], rand), rand);
+				insert(vary(kids[1], rand), rand);
+				bred += 2;
+			} else {
+				Chromosome kid = vary(p1, rand);
+				if (kid != p1) {
+					insert(kid, rand);
+				}
+				++bred;
+			}
+
+			// Publish the count in batches to keep the counter uncontended.
+			if (bred - published >= 0x100) {
+				children.addAndGet(bred - published);
+				published = bred;
+			}
+		}
+		children.addAndGet(bred - published);
+	}
+
+	/**
+	 * Helper method used to mutate a child, based on the mutation ratio.
+	 */
+	private Chromosome vary(Chromosome c, ThreadLocalRandom rand) {
+		return (rand.nextFloat() <= mutation) ? c.mutate() : c;
+	}
+
+	/**
+	 * Helper method used to select a parent via tournament selection.
+	 */
+	private Chromosome select(ThreadLocalRandom rand) {
+		int size = slots.length();
+		Chromosome winner = slots.get(rand.nextInt(size));
+		for (int j = 0; j < TOURNAMENT_SIZE; j++) {
+			Chromosome c = slots.get(rand.nextInt(size));
+			if (c.compareTo(winner) < 0) {
+				winner = c;
+			}
+		}
+
+		return winner;
+	}
+
+	/**
+	 * Helper method used to insert a child in place of the weakest of a few
+	 * randomly selected members, if the child is fitter.
+	 */
+	private void insert(Chromosome child, ThreadLocalRandom rand) {
+		int size = slots.length();
+		for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+			// Pick the victim via an inverse tournament.
+			int victim = rand.nextInt(size);
+			Chromosome weakest = slots.get(victim);
+			for (int j = 0; j < TOURNAMENT_SIZE; j++) {
+				int idx = rand.nextInt(size);
+				Chromosome c = slots.get(idx);
+				if (c.compareTo(weakest) > 0) {
+					victim = idx;
+					weakest = c;
+				}
+			}
+
+			if (child.compareTo(weakest) >= 0) {
+				return;
+			} else if (slots.compareAndSet(victim, weakest, child)) {
+				updateBest(child);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Helper method used to record a new best <code>Chromosome</code>.
+	 */
+	private void updateBest(Chromosome c) {
+		Chromosome current = best.get();
+		while (c.compareTo(current) < 0 && !best.compareAndSet(current, c)) {
+			current = best.get();
+		}
+	}
+}
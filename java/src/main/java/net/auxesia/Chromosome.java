@@ -23,7 +23,9 @@
 */
 package net.auxesia;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This class is used to define a chromosome for the gentic algorithm 
@@ -37,27 +39,147 @@ import java.util.Random;
  * or <code>mutate</code> will result in a new <code>Chromosome</code>
  * instance being created.
  * 
+ * To cope with very long genes, the gene is stored as a series of 
+ * fixed-size chunks, each with a cached fitness and hash.  Chunks are never
+ * modified once created, so a child shares every chunk it did not change 
+ * with its parents and only pays for the chunks it actually touched.  The 
+ * fitness and hash of the gene are plain sums over the chunks (the chunk 
+ * hash is keyed by the chunk's position), so a mutated child takes its 
+ * parent's totals and swaps out the values of the changed chunk, and a 
+ * crossover child only sums over the shorter side of the pivot.  What 
+ * remains linear in the gene length is copying the per-chunk arrays of 
+ * the parents, one entry per <code>CHUNK_SIZE</code> characters.
+ * 
  * @author John Svazic
  * @version 1.0
  */
 public class Chromosome implements Comparable<Chromosome> {
-	private final String gene;
+	private final char[][] chunks;
+	private final int[] chunkFitness;
+	private final long[] chunkHash;
+	private final int length;
 	private final int fitness;
+	private final long geneHash;
+	private final char[] target;
+	
+	/** The gene as a string, only built when asked for. */
+	private String gene;
+	
+	/** 
+	 * The id given by a <code>GenealogyLog</code>, or 0 if not recorded.
+	 * This is not part of the gene, so <code>equals()</code> ignores it.
+	 */
+	/* package */ long id;
+	
+	/** The number of gene characters stored per chunk. */
+	/* package */ static final int CHUNK_SIZE = 1024;
 	
-	/** The target gene, converted to an array for convenience. */
-	private static final char[] TARGET_GENE = "Hello, world!".toCharArray();
+	/** The default target gene. */
+	/* package */ static final String DEFAULT_TARGET = "Hello, world!";
+	
+	/** The default target gene, converted to an array for convenience. */
+	private static final char[] TARGET_GENE = DEFAULT_TARGET.toCharArray();
 
-	/** Convenience randomizer. */
-	private static final Random rand = new Random(System.currentTimeMillis());
+	/** 
+	 * Convenience randomizer.  Each thread gets its own, so that threads
+	 * evolving at the same time do not contend on a shared seed.
+	 */
+	private static Random rand() {
+		return ThreadLocalRandom.current();
+	}
 	
 	/**
 	 * Default constructor.
 	 *
 	 * @param gene The gene representing this <code>Chromosome</code>.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the gene is not as long as
+	 * the default target.
 	 */
 	public Chromosome(String gene) {
-		this.gene    = gene;
-		this.fitness = calculateFitness(gene);
+		this(gene, TARGET_GENE);
+	}
+	
+	/**
+	 * Constructor used to create a <code>Chromosome</code> whose fitness is
+	 * measured against an arbitrary target gene.
+	 *
+	 * @param gene The gene representing this <code>Chromosome</code>.
+	 * @param target The target gene, which must be the same length as the 
+	 * gene.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the lengths differ.
+	 */
+	public Chromosome(String gene, String target) {
+		this(gene, target.toCharArray());
+	}
+	
+	/**
+	 * Internal constructor that shares the target array between all of the
+	 * <code>Chromosome</code>s evolved towards the same target.
+	 *
+	 * @param gene The gene representing this <code>Chromosome</code>.
+	 * @param target The target gene.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the lengths differ.
+	 */
+	/* package */ Chromosome(String gene, char[] target) {
+		this(split(gene, target), target);
+		this.gene = gene;
+	}
+	
+	/**
+	 * Internal constructor used to build a <code>Chromosome</code> from 
+	 * freshly created chunks, calculating the fitness and hash of each.
+	 * 
+	 * @param chunks The chunks of the gene.
+	 * @param target The target gene.
+	 */
+	private Chromosome(char[][] chunks, char[] target) {
+		this.chunks       = chunks;
+		this.chunkFitness = new int[chunks.length];
+		this.chunkHash    = new long[chunks.length];
+		this.target       = target;
+		
+		// Roll up the totals from the per-chunk values.
+		int len  = 0;
+		int fit  = 0;
+		long hash = 0L;
+		for (int i = 0; i < chunks.length; i++) {
+			chunkFitness[i] = calculateFitness(chunks[i], i, target);
+			chunkHash[i]    = calculateHash(chunks[i], i);
+			len  += chunks[i].length;
+			fit  += chunkFitness[i];
+			hash += chunkHash[i];
+		}
+		
+		this.length   = len;
+		this.fitness  = fit;
+		this.geneHash = hash;
+	}
+	
+	/**
+	 * Internal constructor used to assemble a <code>Chromosome</code> from 
+	 * chunks, which may be shared with other <code>Chromosome</code>s, and
+	 * totals already derived from its parents.
+	 * 
+	 * @param chunks The chunks of the gene.
+	 * @param chunkFitness The fitness of each chunk.
+	 * @param chunkHash The hash of each chunk.
+	 * @param length The length of the gene.
+	 * @param fitness The sum of the chunk fitnesses.
+	 * @param geneHash The sum of the chunk hashes.
+	 * @param target The target gene.
+	 */
+	private Chromosome(char[][] chunks, int[] chunkFitness, long[] chunkHash,
+			int length, int fitness, long geneHash, char[] target) {
+		this.chunks       = chunks;
+		this.chunkFitness = chunkFitness;
+		this.chunkHash    = chunkHash;
+		this.length       = length;
+		this.fitness      = fitness;
+		this.geneHash     = geneHash;
+		this.target       = target;
 	}
 	
 	/**
@@ -66,9 +188,28 @@ public class Chromosome implements Comparable<Chromosome> {
 	 * @return The gene for this <code>Chromosome</code>.
 	 */
 	public String getGene() {
+		if (gene == null) {
+			char[] arr = new char[length];
+			for (int i = 0; i < chunks.length; i++) {
+				System.arraycopy(chunks[i], 0, arr, i * CHUNK_SIZE, 
+						chunks[i].length);
+			}
+			gene = String.valueOf(arr);
+		}
+		
 		return gene;
 	}
 	
+	/**
+	 * Method to retrieve the target gene this <code>Chromosome</code> is
+	 * being evolved towards.
+	 *
+	 * @return The target gene.
+	 */
+	public String getTarget() {
+		return String.valueOf(target);
+	}
+	
 	/**
 	 * Method to retrieve the fitness of this <code>Chromosome</code>.  Note
 	 * that a lower fitness indicates a better <code>Chromosome</code> for the
@@ -81,23 +222,78 @@ public class Chromosome implements Comparable<Chromosome> {
 	}
 	
 	/**
-	 * Helper method used to calculate the fitness for a given gene.  The
-	 * fitness is defined as being the sum of the absolute value of the 
-	 * difference between the current gene and the target gene.
+	 * Helper method used to calculate the fitness for a given chunk of a 
+	 * gene.  The fitness is defined as being the sum of the absolute value 
+	 * of the difference between the current gene and the target gene.
 	 * 
-	 * @param gene The gene to calculate the fitness for.
+	 * @param chunk The chunk to calculate the fitness for.
+	 * @param index The index of the chunk within the gene.
+	 * @param target The target gene to measure against.
 	 * 
-	 * @return The calculated fitness of the given gene.
+	 * @return The calculated fitness of the given chunk.
 	 */
-	private static int calculateFitness(String gene) {
+	private static int calculateFitness(char[] chunk, int index, 
+			char[] target) {
 		int fitness = 0;
-		char[] arr  = gene.toCharArray();
-		for (int i = 0; i < arr.length; i++) {
-			fitness += Math.abs(((int) arr[i]) - ((int) TARGET_GENE[i]));
+		int offset  = index * CHUNK_SIZE;
+		for (int i = 0; i < chunk.length; i++) {
+			fitness += Math.abs(((int) chunk[i]) - ((int) target[offset + i]));
 		}
 		
 		return fitness;
 	}
+	
+	/**
+	 * Helper method used to calculate the 64-bit hash of a chunk at a given
+	 * position: an FNV-1a hash of its characters, keyed by the position and
+	 * mixed so that the hash of the gene can simply be the sum of the hashes
+	 * of its chunks.
+	 * 
+	 * @param chunk The chunk to hash.
+	 * @param index The index of the chunk within the gene.
+	 * 
+	 * @return The hash of the chunk.
+	 */
+	private static long calculateHash(char[] chunk, int index) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < chunk.length; i++) {
+			hash = (hash ^ chunk[i]) * 0x100000001B3L;
+		}
+		
+		// Without the position, swapping two chunks would keep the sum.
+		hash += (index + 1) * 0x9E3779B97F4A7C15L;
+		hash  = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash  = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+	
+	/**
+	 * Helper method used to split a gene into chunks.
+	 * 
+	 * @param gene The gene to split.
+	 * @param target The target gene, which must be as long as the gene.
+	 * 
+	 * @return The chunks of the gene.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the lengths differ.
+	 */
+	private static char[][] split(String gene, char[] target) {
+		int len = gene.length();
+		if (len != target.length) {
+			throw new IllegalArgumentException("The gene has " + len 
+					+ " characters but the target " + target.length);
+		}
+		
+		char[][] chunks = new char[(len + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+		for (int i = 0; i < chunks.length; i++) {
+			int start = i * CHUNK_SIZE;
+			int end   = Math.min(start + CHUNK_SIZE, len);
+			chunks[i] = new char[end - start];
+			gene.getChars(start, end, chunks[i], 0);
+		}
+		
+		return chunks;
+	}
 
 	/**
 	 * Method to generate a new <code>Chromosome</code> that is a random
@@ -110,12 +306,37 @@ public class Chromosome implements Comparable<Chromosome> {
 	 * @return A mutated version of this <code>Chromosome</code>.
 	 */
 	public Chromosome mutate() {
-		char[] arr  = gene.toCharArray();
-		int idx     = rand.nextInt(arr.length);
-		int delta   = (rand.nextInt() % 90) + 32;
-		arr[idx]    = (char) ((arr[idx] + delta) % 122);
+		return mutate(rand().nextInt(length));
+	}
+	
+	/**
+	 * Method to generate a new <code>Chromosome</code> that is a random 
+	 * mutation of this <code>Chromosome</code> at a given position.
+	 * 
+	 * @param idx The position to mutate, where 0 <= idx < length.
+	 * 
+	 * @return A mutated version of this <code>Chromosome</code>.
+	 */
+	/* package */ Chromosome mutate(int idx) {
+		int delta   = (rand().nextInt() % 90) + 32;
+		
+		// Only the chunk holding the mutated character is copied.
+		int c       = idx / CHUNK_SIZE;
+		char[] arr  = chunks[c].clone();
+		int off     = idx % CHUNK_SIZE;
+		arr[off]    = (char) ((arr[off] + delta) % 122);
+		
+		char[][] newChunks = chunks.clone();
+		int[] newFitness   = chunkFitness.clone();
+		long[] newHash     = chunkHash.clone();
+		newChunks[c]  = arr;
+		newFitness[c] = calculateFitness(arr, c, target);
+		newHash[c]    = calculateHash(arr, c);
 
-		return new Chromosome(String.valueOf(arr));
+		// The totals change by the difference in the one chunk.
+		return new Chromosome(newChunks, newFitness, newHash, length, 
+				fitness - chunkFitness[c] + newFitness[c], 
+				geneHash - chunkHash[c] + newHash[c], target);
 	}
 
 	/**
@@ -127,27 +348,195 @@ public class Chromosome implements Comparable<Chromosome> {
 	 * @return The resulting <code>Chromosome</code> children.
 	 */
 	public Chromosome[] mate(Chromosome mate) {
-		// Convert the genes to arrays to make thing easier.
-		char[] arr1  = gene.toCharArray();
-		char[] arr2  = mate.gene.toCharArray();
-		
 		// Select a random pivot point for the mating
-		int pivot    = rand.nextInt(arr1.length);
+		int pivot    = rand().nextInt(length);
+		
+		// The first child takes the head of this gene and the tail of the 
+		// mate's gene, the second child the other way around.
+		return new Chromosome[] { splice(this, mate, pivot), 
+				splice(mate, this, pivot) };
+	}
+	
+	/**
+	 * Method used to build a single child from the head of this 
+	 * <code>Chromosome</code>'s gene and the tail of another, at a given
+	 * pivot.  This is the first of the children <code>mate(Chromosome)</code>
+	 * would build for the same pivot.
+	 * 
+	 * @param mate The <code>Chromosome</code> providing the tail.
+	 * @param pivot The pivot point, where 0 <= pivot < length.
+	 * 
+	 * @return The resulting child.
+	 */
+	/* package */ Chromosome crossover(Chromosome mate, int pivot) {
+		return splice(this, mate, pivot);
+	}
+	
+	/**
+	 * Helper method used to build a child from the head of one gene and the
+	 * tail of another.  Only the chunk containing the pivot is copied, all
+	 * other chunks are shared with the parents.
+	 * 
+	 * @param head The parent providing the gene before the pivot.
+	 * @param tail The parent providing the gene from the pivot onwards.
+	 * @param pivot The pivot point.
+	 * 
+	 * @return The resulting child.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the genes differ in length.
+	 */
+	private static Chromosome splice(Chromosome head, Chromosome tail, 
+			int pivot) {
+		if (head.length != tail.length) {
+			throw new IllegalArgumentException("Cannot splice genes of " 
+					+ head.length + " and " + tail.length + " characters");
+		}
 		
-		// Provide a container for the child gene data
-		char[] child1 = new char[gene.length()];
-		char[] child2 = new char[gene.length()];
+		int n   = head.chunks.length;
+		int c   = pivot / CHUNK_SIZE;
+		int off = pivot % CHUNK_SIZE;
 		
-		// Copy the data from each gene to the first child.
-		System.arraycopy(arr1, 0, child1, 0, pivot);
-		System.arraycopy(arr2, pivot, child1, pivot, (child1.length - pivot));
+		char[][] chunks    = new char[n][];
+		int[] chunkFitness = new int[n];
+		long[] chunkHash   = new long[n];
 		
-		// Repeat for the second child, but in reverse order.
-		System.arraycopy(arr2, 0, child2, 0, pivot);
-		System.arraycopy(arr1, pivot, child2, pivot, (child2.length - pivot));
-
-		return new Chromosome[] { new Chromosome(String.valueOf(child1)), 
-				new Chromosome(String.valueOf(child2))}; 
+		// Share the untouched chunks with the parents.
+		System.arraycopy(head.chunks, 0, chunks, 0, c);
+		System.arraycopy(head.chunkFitness, 0, chunkFitness, 0, c);
+		System.arraycopy(head.chunkHash, 0, chunkHash, 0, c);
+		System.arraycopy(tail.chunks, c, chunks, c, n - c);
+		System.arraycopy(tail.chunkFitness, c, chunkFitness, c, n - c);
+		System.arraycopy(tail.chunkHash, c, chunkHash, c, n - c);
+		
+		// Start from the totals of one parent and swap in the chunks taken 
+		// from the other, whichever side of the pivot is shorter.
+		int fit;
+		long hash;
+		if (c <= n - c) {
+			fit  = tail.fitness;
+			hash = tail.geneHash;
+			for (int i = 0; i < c; i++) {
+				fit  += head.chunkFitness[i] - tail.chunkFitness[i];
+				hash += head.chunkHash[i] - tail.chunkHash[i];
+			}
+		} else {
+			fit  = head.fitness;
+			hash = head.geneHash;
+			for (int i = c; i < n; i++) {
+				fit  += tail.chunkFitness[i] - head.chunkFitness[i];
+				hash += tail.chunkHash[i] - head.chunkHash[i];
+			}
+		}
+		
+		// Merge the chunk holding the pivot, unless it falls on a boundary.
+		if (off > 0) {
+			char[] arr = tail.chunks[c].clone();
+			System.arraycopy(head.chunks[c], 0, arr, 0, off);
+			fit  -= chunkFitness[c];
+			hash -= chunkHash[c];
+			chunks[c]       = arr;
+			chunkFitness[c] = calculateFitness(arr, c, head.target);
+			chunkHash[c]    = calculateHash(arr, c);
+			fit  += chunkFitness[c];
+			hash += chunkHash[c];
+		}
+		
+		return new Chromosome(chunks, chunkFitness, chunkHash, head.length, 
+				fit, hash, head.target);
+	}
+	
+	/**
+	 * Method to retrieve the length of the gene without building it.
+	 * 
+	 * @return The length of the gene.
+	 */
+	/* package */ int length() {
+		return length;
+	}
+	
+	/**
+	 * Method to retrieve the cached 64-bit hash of the gene.  Unlike 
+	 * <code>hashCode()</code> this is wide enough to tell genes apart by 
+	 * their hash alone.
+	 * 
+	 * @return The hash of the gene.
+	 */
+	/* package */ long geneHash() {
+		return geneHash;
+	}
+	
+	/**
+	 * Method to retrieve a single character of the gene.
+	 * 
+	 * @param idx The position of the character.
+	 * 
+	 * @return The character at the given position.
+	 */
+	/* package */ char charAt(int idx) {
+		return chunks[idx / CHUNK_SIZE][idx % CHUNK_SIZE];
+	}
+	
+	/**
+	 * Method used to determine how the fitness would change if a single 
+	 * character of the gene were replaced.  Since the fitness is a sum over 
+	 * the positions of the gene, this only needs to look at the one 
+	 * position.
+	 * 
+	 * @param idx The position of the character.
+	 * @param value The replacement character.
+	 * 
+	 * @return The change in fitness, where a negative value is an 
+	 * improvement.
+	 */
+	/* package */ int fitnessDelta(int idx, char value) {
+		int t = target[idx];
+		return Math.abs(value - t) - Math.abs(charAt(idx) - t);
+	}
+	
+	/**
+	 * Method used to create a copy of this <code>Chromosome</code> with 
+	 * some of the characters replaced.  Only the chunks holding a replaced 
+	 * character are copied.
+	 * 
+	 * @param positions The positions to replace, which must be distinct.
+	 * @param values The replacement characters.
+	 * @param count The number of replacements to apply.
+	 * 
+	 * @return The resulting <code>Chromosome</code>.
+	 */
+	/* package */ Chromosome replace(int[] positions, char[] values, 
+			int count) {
+		if (count == 0) {
+			return this;
+		}
+		
+		char[][] newChunks = chunks.clone();
+		int[] touched      = new int[count];
+		int t              = 0;
+		for (int i = 0; i < count; i++) {
+			int c = positions[i] / CHUNK_SIZE;
+			if (newChunks[c] == chunks[c]) {
+				newChunks[c] = chunks[c].clone();
+				touched[t++] = c;
+			}
+			newChunks[c][positions[i] % CHUNK_SIZE] = values[i];
+		}
+		
+		// Only the copied chunks change the totals.
+		int[] newFitness = chunkFitness.clone();
+		long[] newHash   = chunkHash.clone();
+		int fit          = fitness;
+		long hash        = geneHash;
+		for (int i = 0; i < t; i++) {
+			int c = touched[i];
+			newFitness[c] = calculateFitness(newChunks[c], c, target);
+			newHash[c]    = calculateHash(newChunks[c], c);
+			fit  += newFitness[c] - chunkFitness[c];
+			hash += newHash[c] - chunkHash[c];
+		}
+		
+		return new Chromosome(newChunks, newFitness, newHash, length, fit, 
+				hash, target);
 	}
 	
 	/**
@@ -156,12 +545,29 @@ public class Chromosome implements Comparable<Chromosome> {
 	 * @return A randomly generated <code>Chromosome</code>.
 	 */
 	/* package */ static Chromosome generateRandom() {
-		char[] arr = new char[TARGET_GENE.length];
-		for (int i = 0; i < arr.length; i++) {
-			arr[i] = (char) (rand.nextInt(90) + 32);
+		return generateRandom(TARGET_GENE);
+	}
+
+	/**
+	 * A convenience method to generate a random <code>Chromosome</code> for
+	 * the given target gene.
+	 * 
+	 * @param target The target gene.
+	 * 
+	 * @return A randomly generated <code>Chromosome</code>.
+	 */
+	/* package */ static Chromosome generateRandom(char[] target) {
+		char[][] chunks = new char[(target.length + CHUNK_SIZE - 1) 
+		                           / CHUNK_SIZE][];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = new char[Math.min(CHUNK_SIZE, 
+					target.length - i * CHUNK_SIZE)];
+			for (int j = 0; j < chunks[i].length; j++) {
+				chunks[i][j] = (char) (rand().nextInt(90) + 32);
+			}
 		}
 
-		return new Chromosome(String.valueOf(arr));
+		return new Chromosome(chunks, target);
 	}
 
 	/**
@@ -191,7 +597,20 @@ public class Chromosome implements Comparable<Chromosome> {
 		}
 		
 		Chromosome c = (Chromosome) o;
-		return (gene.equals(c.gene) && fitness == c.fitness);
+		if (fitness != c.fitness || geneHash != c.geneHash 
+				|| length != c.length) {
+			return false;
+		}
+		
+		// Shared chunks are trivially equal, so only compare the rest.
+		for (int i = 0; i < chunks.length; i++) {
+			if (chunks[i] != c.chunks[i] 
+					&& !Arrays.equals(chunks[i], c.chunks[i])) {
+				return false;
+			}
+		}
+		
+		return true;
 	}
 	
 	/**
@@ -199,7 +618,6 @@ public class Chromosome implements Comparable<Chromosome> {
 	 */
 	@Override
 	public int hashCode() {		
-		return new StringBuilder().append(gene).append(fitness)
-				.toString().hashCode();
+		return (int) (geneHash ^ (geneHash >>> 32));
 	}
 }
\ No newline at end of file
@@ -23,6 +23,10 @@
 */
 package net.auxesia;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 /**
  * Driver class for the "Hello, world!" genetic algorithm simulation.
  * 
@@ -37,9 +41,17 @@ public class GAHelloWorld {
 	/**
 	 * The main method used for execution of the application.
 	 * 
-	 * @param args Command-line arguments (ignored).
+	 * @param args Optional command-line arguments: the local search budget
+	 * per elite <code>Chromosome</code> (default 0, which disables the local
+	 * search), the number of generations between local searches 
+	 * (default 1) and the fraction of candidate children that are really
+	 * evaluated after surrogate screening (default 1.0, which disables the
+	 * screening) and a directory to record the genealogy of the run in 
+	 * (by default nothing is recorded).
+	 * 
+	 * @throws IOException Thrown if the genealogy cannot be recorded.
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		
 		// The size of the simulation population
 		final int populationSize = 2048;
@@ -58,6 +70,22 @@ public class GAHelloWorld {
 		// The probability of mutation for any member of the population,
 		// where 0.0 <= mutationRatio <= 1.0
 		final float mutationRatio = 0.03f;
+		
+		// The number of fitness evaluations the local search may spend on
+		// each elite chromosome, and how often (in generations) it runs.
+		final int localSearchBudget = (args.length > 0) 
+				? Integer.parseInt(args[0]) : 0;
+		final int localSearchFrequency = (args.length > 1) 
+				? Integer.parseInt(args[1]) : 1;
+		
+		// The fraction of candidate children that are really evaluated,
+		// where 0.0 < screeningRatio <= 1.0
+		final float screeningRatio = (args.length > 2) 
+				? Float.parseFloat(args[2]) : 1.0f;
+		
+		// Where to record the lineage of every chromosome, if anywhere.
+		final File genealogyDir = (args.length > 3) 
+				? new File(args[3]) : null;
 	
 		// Get the current run time.  Not very accurate, but useful for 
 		// some simple reporting.
@@ -66,6 +94,13 @@ public class GAHelloWorld {
 		// Create the initial population
 		Population pop = new Population(populationSize, crossoverRatio, 
 				elitismRatio, mutationRatio);
+		pop.setLocalSearch(localSearchBudget, localSearchFrequency);
+		pop.setScreening(screeningRatio);
+		GenealogyLog log = null;
+		if (genealogyDir != null) {
+			log = new GenealogyLog(genealogyDir);
+			pop.setGenealogy(log);
+		}
 
 		// Start evolving the population, stopping when the maximum number of
 		// generations is reached, or when we find a solution.
@@ -85,5 +120,49 @@ public class GAHelloWorld {
 		System.out.println("Generation " + i + ": " + best.getGene());
 		System.out.println("Total execution time: " + (endTime - startTime) + 
 				"ms");
+		System.out.println("Fitness evaluations: " + pop.getEvaluated());
+		if (localSearchBudget > 0) {
+			System.out.println("Local search evaluations: " 
+					+ pop.getLocalSearchEvaluations() + " (" 
+					+ pop.getLocalSearchImprovements() + " improvements)");
+		}
+		if (screeningRatio < 1.0f) {
+			System.out.println("Surrogate: " + pop.getScreened() 
+					+ " candidates screened, mean error "
+					+ pop.getSurrogateError() + ", hit rate " 
+					+ pop.getSurrogateHitRate());
+		}
+		if (log != null) {
+			log.close();
+			printLineage(genealogyDir, best);
+		}
+	}
+	
+	/**
+	 * Helper method used to summarise the recorded lineage of the best
+	 * <code>Chromosome</code>.
+	 */
+	private static void printLineage(File dir, Chromosome best) 
+			throws IOException {
+		GenealogyReader reader = new GenealogyReader(dir);
+		try {
+			List<GenealogyReader.Record> lineage = reader.getLineage(best.id);
+			int crossovers = 0;
+			int mutations = 0;
+			for (GenealogyReader.Record r : lineage) {
+				if ((r.getOperator() & GenealogyLog.CROSSOVER) != 0) {
+					++crossovers;
+				}
+				if ((r.getOperator() & GenealogyLog.MUTATION) != 0) {
+					++mutations;
+				}
+			}
+			System.out.println("Genealogy: " + reader.size() 
+					+ " chromosomes recorded, " + lineage.size() 
+					+ " in the lineage of the best (" + crossovers 
+					+ " crossovers, " + mutations + " mutations)");
+		} finally {
+			reader.close();
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,489 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A long-lived local job server for the "Hello, world!" genetic algorithm.
+ *
+ * The server accepts solve jobs over HTTP and evolves them concurrently on a
+ * bounded pool of worker threads, so that the JVM start-up and JIT warm-up
+ * costs are paid once rather than per job.  The following requests are
+ * supported, all of which respond with plain text:
+ *
+ * <ul>
+ * <li><code>POST /jobs</code> - submit a job.  The form-encoded body (or the
+ * query string) may contain <code>target</code>, <code>size</code>,
+ * <code>crossover</code>, <code>elitism</code>, <code>mutation</code>,
+ * <code>generations</code> and <code>timeout</code> (in milliseconds).
+ * The size, the target length and the characters of a whole generation are
+ * capped, so that a single request cannot exhaust the memory.  The target
+ * may only hold the characters a gene can evolve, <code>' '</code> to
+ * <code>'y'</code>.</li>
+ * <li><code>GET /jobs/&lt;id&gt;</code> - report the status of a job.</li>
+ * <li><code>GET /jobs/&lt;id&gt;/progress</code> - stream one line per
+ * update until the job finishes.</li>
+ * <li><code>DELETE /jobs/&lt;id&gt;</code> - cancel a job.</li>
+ * </ul>
+ *
+ * Besides the number of unfinished jobs, the server caps the gene 
+ * characters held by all of its jobs together: a whole generation for a 
+ * job that is still running, and just the best gene for a finished job 
+ * kept around for its clients.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+public class GAServer {
+
+	/** How long finished jobs are kept around for clients to query. */
+	private static final long RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	/** How long a progress stream waits for an update before re-checking. */
+	private static final long PROGRESS_POLL_MILLIS = 1000;
+
+	/** The largest population a job may ask for. */
+	/* package */ static final int MAX_SIZE = 1 << 16;
+
+	/** The longest target a job may ask for. */
+	/* package */ static final int MAX_TARGET_LENGTH = 1 << 20;
+
+	/** The most gene characters a generation of a job may hold. */
+	/* package */ static final long MAX_GENERATION_CHARS = 1L << 25;
+
+	/** The largest request body read, enough for an escaped target. */
+	private static final int MAX_BODY_BYTES = 16 * MAX_TARGET_LENGTH;
+
+	/** The default number of gene characters all jobs may hold at once. */
+	public static final long DEFAULT_MAX_CHARS = 1L << 27;
+
+	/** The range of characters a gene can evolve. */
+	private static final char MIN_GENE_CHAR = ' ';
+	private static final char MAX_GENE_CHAR = 'y';
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+	private final ExecutorService requests;
+	private final int maxJobs;
+	private final long maxChars;
+	private final Map<Long, SolveJob> jobs =
+			new ConcurrentHashMap<Long, SolveJob>();
+	private final AtomicLong nextId = new AtomicLong();
+
+	/**
+	 * Default constructor.  The server only listens on the loopback
+	 * interface.
+	 *
+	 * @param port The port to listen on, or 0 for an ephemeral port.
+	 * @param threads The number of worker threads evolving jobs.
+	 * @param maxJobs The maximum number of unfinished jobs accepted at once.
+	 *
+	 * @throws IOException Thrown if the server socket cannot be bound.
+	 */
+	public GAServer(int port, int threads, int maxJobs) throws IOException {
+		this(port, threads, maxJobs, DEFAULT_MAX_CHARS);
+	}
+
+	/**
+	 * Constructor used to set the memory budget of the server.  The server
+	 * only listens on the loopback interface.
+	 *
+	 * @param port The port to listen on, or 0 for an ephemeral port.
+	 * @param threads The number of worker threads evolving jobs.
+	 * @param maxJobs The maximum number of unfinished jobs accepted at once.
+	 * @param maxChars The maximum number of gene characters held by all of
+	 * the jobs at once.
+	 *
+	 * @throws IOException Thrown if the server socket cannot be bound.
+	 */
+	public GAServer(int port, int threads, int maxJobs, long maxChars)
+			throws IOException {
+		this.maxJobs = maxJobs;
+		this.maxChars = maxChars;
+		this.workers = new ThreadPoolExecutor(threads, threads, 0L,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		this.requests = Executors.newCachedThreadPool();
+		this.server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), port), 0);
+		this.server.setExecutor(requests);
+		this.server.createContext("/jobs", new JobsHandler());
+	}
+
+	/**
+	 * Method used to start accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Method used to stop the server.  Running jobs are cancelled.
+	 */
+	public void stop() {
+		server.stop(0);
+		for (SolveJob job : jobs.values()) {
+			job.cancel();
+		}
+		workers.shutdownNow();
+		requests.shutdownNow();
+	}
+
+	/**
+	 * Method to retrieve the port the server is listening on.
+	 *
+	 * @return The port number.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Method used to submit a job directly, bypassing HTTP.
+	 *
+	 * @param params The job parameters, as described in the class comment.
+	 *
+	 * @return The submitted job, or <code>null</code> if the server is at
+	 * capacity.
+	 *
+	 * @throws IllegalArgumentException Thrown if a parameter is invalid.
+	 */
+	public SolveJob submit(Map<String, String> params) {
+		String target = param(params, "target", Chromosome.DEFAULT_TARGET);
+		int size = Integer.parseInt(param(params, "size", "2048"));
+		float crossover = Float.parseFloat(param(params, "crossover", "0.8"));
+		float elitism = Float.parseFloat(param(params, "elitism", "0.1"));
+		float mutation = Float.parseFloat(param(params, "mutation", "0.03"));
+		int generations = Integer.parseInt(
+				param(params, "generations", "16384"));
+		long timeout = Long.parseLong(param(params, "timeout", "0"));
+
+		if (target.length() == 0) {
+			throw new IllegalArgumentException("target must not be empty");
+		} else if (target.length() > MAX_TARGET_LENGTH) {
+			throw new IllegalArgumentException("target must be at most "
+					+ MAX_TARGET_LENGTH + " characters");
+		} else if (size <= 0 || size > MAX_SIZE) {
+			throw new IllegalArgumentException("size must be > 0 and <= "
+					+ MAX_SIZE);
+		} else if ((long) size * target.length() > MAX_GENERATION_CHARS) {
+			throw new IllegalArgumentException("size * target length must "
+					+ "be <= " + MAX_GENERATION_CHARS);
+		} else if (!isEvolvable(target)) {
+			throw new IllegalArgumentException("target characters must be "
+					+ "between '" + MIN_GENE_CHAR + "' and '" + MAX_GENE_CHAR
+					+ "'");
+		} else if (crossover < 0.0f || crossover > 1.0f) {
+			throw new IllegalArgumentException("crossover out of range");
+		} else if (elitism < 0.0f || elitism >= 1.0f) {
+			throw new IllegalArgumentException("elitism out of range");
+		} else if (mutation < 0.0f || mutation > 1.0f) {
+			throw new IllegalArgumentException("mutation out of range");
+		}
+
+		purge();
+		synchronized (jobs) {
+			int active = 0;
+			long chars = (long) size * target.length();
+			for (SolveJob job : jobs.values()) {
+				if (!job.isDone()) {
+					++active;
+				}
+				chars += job.getCharacters();
+			}
+			if (active >= maxJobs || chars > maxChars) {
+				return null;
+			}
+
+			SolveJob job = new SolveJob(nextId.incrementAndGet(), target,
+					size, crossover, elitism, mutation, generations, timeout,
+					workers);
+			jobs.put(job.getId(), job);
+			job.start();
+
+			return job;
+		}
+	}
+
+	/**
+	 * Method used to look up a job by its identifier.
+	 *
+	 * @param id The job identifier.
+	 *
+	 * @return The job, or <code>null</code> if there is no such job.
+	 */
+	public SolveJob getJob(long id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 * Helper method used to drop finished jobs past their retention period.
+	 */
+	private void purge() {
+		long cutoff = System.currentTimeMillis() - RETENTION_MILLIS;
+		Iterator<SolveJob> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			SolveJob job = it.next();
+			if (job.isDone() && job.getFinishedAt() < cutoff) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Helper method used to check that a gene can evolve into the target.
+	 * Genes are built from the characters <code>' '</code> to 
+	 * <code>'y'</code> only, so no other character could ever be matched.
+	 */
+	private static boolean isEvolvable(String target) {
+		for (int i = 0; i < target.length(); i++) {
+			char ch = target.charAt(i);
+			if (ch < MIN_GENE_CHAR || ch > MAX_GENE_CHAR) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Helper method used to read a parameter with a default value.
+	 */
+	private static String param(Map<String, String> params, String key,
+			String def) {
+		String value = params.get(key);
+		return (value == null) ? def : value;
+	}
+
+	/**
+	 * Helper method used to parse a form-encoded string into a map.
+	 */
+	private static void parseForm(String form, Map<String, String> params)
+			throws UnsupportedEncodingException {
+		if (form == null || form.length() == 0) {
+			return;
+		}
+
+		for (String pair : form.split("&")) {
+			int idx = pair.indexOf('=');
+			if (idx > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, idx), "UTF-8"),
+						URLDecoder.decode(pair.substring(idx + 1), "UTF-8"));
+			}
+		}
+	}
+
+	/**
+	 * Helper method used to send a complete plain-text response.
+	 */
+	private static void respond(HttpExchange exchange, int code, String body)
+			throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type",
+				"text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	/**
+	 * Handler for everything under <code>/jobs</code>.
+	 */
+	private class JobsHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			// Drop expired jobs on every request, not only on submit.
+			purge();
+			try {
+				String method = exchange.getRequestMethod();
+				String[] path = exchange.getRequestURI().getPath()
+						.replaceAll("/+$", "").split("/");
+
+				// path[0] is empty and path[1] is "jobs".
+				if (path.length == 2 && "POST".equals(method)) {
+					create(exchange);
+					return;
+				}
+
+				SolveJob job = null;
+				if (path.length >= 3) {
+					try {
+						job = jobs.get(Long.parseLong(path[2]));
+					} catch (NumberFormatException e) {
+						job = null;
+					}
+				}
+
+				if (job == null) {
+					respond(exchange, 404, "No such job\n");
+				} else if (path.length == 3 && "GET".equals(method)) {
+					respond(exchange, 200, job.getStatus());
+				} else if (path.length == 3 && "DELETE".equals(method)) {
+					job.cancel();
+					respond(exchange, 200, job.getStatus());
+				} else if (path.length == 4 && "progress".equals(path[3])
+						&& "GET".equals(method)) {
+					stream(exchange, job);
+				} else {
+					respond(exchange, 405, "Unsupported request\n");
+				}
+			} finally {
+				exchange.close();
+			}
+		}
+
+		/**
+		 * Helper method used to submit a new job.
+		 */
+		private void create(HttpExchange exchange) throws IOException {
+			Map<String, String> params = new HashMap<String, String>();
+			String body = readBody(exchange);
+			if (body == null) {
+				respond(exchange, 413, "Request body too large\n");
+				return;
+			}
+
+			SolveJob job;
+			try {
+				parseForm(exchange.getRequestURI().getRawQuery(), params);
+				parseForm(body, params);
+				job = submit(params);
+			} catch (IllegalArgumentException e) {
+				// NumberFormatException is also an IllegalArgumentException,
+				// as is a malformed escape in the form.
+				respond(exchange, 400, e.getMessage() + "\n");
+				return;
+			}
+
+			if (job == null) {
+				respond(exchange, 503, "Server at capacity\n");
+			} else {
+				exchange.getResponseHeaders().set("Location",
+						"/jobs/" + job.getId());
+				respond(exchange, 202, job.getStatus());
+			}
+		}
+
+		/**
+		 * Helper method used to stream progress lines of the form
+		 * <code>generation fitness gene</code> until the job finishes.
+		 */
+		private void stream(HttpExchange exchange, SolveJob job)
+				throws IOException {
+			exchange.getResponseHeaders().set("Content-Type",
+					"text/plain; charset=UTF-8");
+			exchange.sendResponseHeaders(200, 0);
+			OutputStream out = exchange.getResponseBody();
+
+			int last = -1;
+			try {
+				while (true) {
+					job.awaitProgress(last, PROGRESS_POLL_MILLIS);
+					boolean done = job.isDone();
+					Chromosome best = job.getBest();
+					int gen = job.getGeneration();
+
+					if (best != null && gen > last) {
+						last = gen;
+						out.write((gen + " " + best.getFitness() + " "
+								+ best.getGene() + "\n").getBytes("UTF-8"));
+						out.flush();
+					}
+					if (done) {
+						out.write((job.getState() + "\n").getBytes("UTF-8"));
+						break;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				out.close();
+			}
+		}
+
+		/**
+		 * Helper method used to read the request body as a string.
+		 */
+		private String readBody(HttpExchange exchange) throws IOException {
+			InputStream in = exchange.getRequestBody();
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			byte[] chunk = new byte[4096];
+			int n;
+			while ((n = in.read(chunk)) > 0) {
+				if (buf.size() + n > MAX_BODY_BYTES) {
+					return null;
+				}
+				buf.write(chunk, 0, n);
+			}
+
+			return buf.toString("UTF-8");
+		}
+	}
+
+	/**
+	 * The main method used to run the server.
+	 *
+	 * @param args Optional command-line arguments: the port (default 8080),
+	 * the number of worker threads (default: one per processor), the
+	 * maximum number of concurrent jobs (default 256) and the maximum number
+	 * of gene characters held by all jobs (default 2^27).
+	 *
+	 * @throws IOException Thrown if the server cannot be started.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		int maxJobs = (args.length > 2) ? Integer.parseInt(args[2]) : 256;
+		long maxChars = (args.length > 3) ? Long.parseLong(args[3])
+				: DEFAULT_MAX_CHARS;
+
+		GAServer server = new GAServer(port, threads, maxJobs, maxChars);
+		server.start();
+		System.out.println("Listening on port " + server.getPort());
+	}
+}
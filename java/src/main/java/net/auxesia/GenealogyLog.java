@@ -0,0 +1,347 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An append-only log of where every <code>Chromosome</code> of a
+ * <code>Population</code> came from, used to analyse the lineage of a
+ * solution once the evolution is over (see <code>GenealogyReader</code>).
+ *
+ * Each new <code>Chromosome</code> is given a sequential id and described by
+ * a fixed-width record holding the ids of its parents, the operator that
+ * built it, the crossover pivot and mutated position, its generation and
+ * its fitness.  The records are written straight into memory-mapped
+ * segment files in the log directory, so recording a child is a handful of
+ * stores with no allocation and no system call.  A new segment is only
+ * created once the current one is full.
+ *
+ * Records are never changed once written.  Opening a log on a directory
+ * that already holds segments carries on after the last record.  The id of
+ * a record is written last, so a record cut short by a crash is simply not
+ * seen.
+ *
+ * Note that this class is not thread-safe.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+public class GenealogyLog implements Closeable {
+
+	/** The operator of a <code>Chromosome</code> with no parents. */
+	public static final int RANDOM = 0;
+
+	/** The operator flag of a child built by crossover. */
+	public static final int CROSSOVER = 1;
+
+	/** The operator flag of a child built or finished by a mutation. */
+	public static final int MUTATION = 2;
+
+	/** The operator of an elite <code>Chromosome</code> refined locally. */
+	public static final int LOCAL_SEARCH = 4;
+
+	/** The default number of records in a segment. */
+	public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+
+	/** Marks the start of a segment file. */
+	/* package */ static final int MAGIC = 0x4741474C;
+
+	/** The size of the segment header: magic, record size and first id. */
+	/* package */ static final int HEADER_SIZE = 16;
+
+	/** The size of a record, padded to keep the ids 8-byte aligned. */
+	/* package */ static final int RECORD_SIZE = 48;
+
+	/** The offsets of the fields within a record. */
+	/* package */ static final int ID = 0;
+	/* package */ static final int PARENT1 = 8;
+	/* package */ static final int PARENT2 = 16;
+	/* package */ static final int GENERATION = 24;
+	/* package */ static final int FITNESS = 28;
+	/* package */ static final int PIVOT = 32;
+	/* package */ static final int POINT = 36;
+	/* package */ static final int OPERATOR = 40;
+
+	/** The suffix of the segment files. */
+	/* package */ static final String SUFFIX = ".gen";
+
+	private final File dir;
+	private final int segmentRecords;
+	private RandomAccessFile file;
+	private MappedByteBuffer segment;
+	private long nextId = 1;
+	private int position;
+	private int limit;
+	private boolean closed;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param dir The directory to keep the segment files in.  It is
+	 * created if needed.
+	 *
+	 * @throws IOException Thrown if the log cannot be opened.
+	 */
+	public GenealogyLog(File dir) throws IOException {
+		this(dir, DEFAULT_SEGMENT_RECORDS);
+	}
+
+	/**
+	 * Constructor used to set the size of the segment files.
+	 *
+	 * @param dir The directory to keep the segment files in.  It is
+	 * created if needed.
+	 * @param segmentRecords The number of records in a segment, where
+	 * segmentRecords > 0.
+	 *
+	 * @throws IOException Thrown if the log cannot be opened.
+	 */
+	public GenealogyLog(File dir, int segmentRecords) throws IOException {
+		if (segmentRecords <= 0 || segmentRecords
+				> (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+			throw new IllegalArgumentException(
+					"segmentRecords out of range: " + segmentRecords);
+		}
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create " + dir);
+		}
+
+		this.dir = dir;
+		this.segmentRecords = segmentRecords;
+
+		// Carry on after the last record of an existing log.
+		File[] segments = listSegments(dir);
+		if (segments.length > 0) {
+			File last = segments[segments.length - 1];
+			file = new RandomAccessFile(last, "rw");
+			segment = map(file, FileChannel.MapMode.READ_WRITE);
+			int count = countRecords(segment, last);
+			nextId = segment.getLong(8) + count;
+			position = HEADER_SIZE + count * RECORD_SIZE;
+			limit = segment.capacity();
+		}
+	}
+
+	/**
+	 * Method used to record a new <code>Chromosome</code>, which is given
+	 * the next id.
+	 *
+	 * @param child The new <code>Chromosome</code>.
+	 * @param parent1 The parent providing the head of the gene, or the
+	 * mutated or refined <code>Chromosome</code>; <code>null</code> if none.
+	 * @param parent2 The parent providing the tail of the gene, or
+	 * <code>null</code> if none.
+	 * @param operator The operator, <code>RANDOM</code>,
+	 * <code>LOCAL_SEARCH</code> or a combination of <code>CROSSOVER</code>
+	 * and <code>MUTATION</code>.
+	 * @param generation The generation the child belongs to.
+	 * @param pivot The crossover pivot, or -1 if none.
+	 * @param point The mutated position, or -1 if none.
+	 *
+	 * @return The id of the child.
+	 *
+	 * @throws UncheckedIOException Thrown if a new segment cannot be created.
+	 * @throws IllegalStateException Thrown if the log is closed.
+	 */
+	/* package */ long record(Chromosome child, Chromosome parent1,
+			Chromosome parent2, int operator, int generation, int pivot,
+			int point) {
+		if (position == limit) {
+			roll();
+		}
+
+		long id = nextId++;
+		int p = position;
+		segment.putLong(p + PARENT1, (parent1 == null) ? 0L : parent1.id);
+		segment.putLong(p + PARENT2, (parent2 == null) ? 0L : parent2.id);
+		segment.putInt(p + GENERATION, generation);
+		segment.putInt(p + FITNESS, child.getFitness());
+		segment.putInt(p + PIVOT, pivot);
+		segment.putInt(p + POINT, point);
+		segment.putInt(p + OPERATOR, operator);
+		segment.putLong(p + ID, id);
+		position = p + RECORD_SIZE;
+
+		child.id = id;
+		return id;
+	}
+
+	/**
+	 * Method to retrieve the id the next recorded <code>Chromosome</code>
+	 * will be given.
+	 *
+	 * @return The next id.
+	 */
+	public long getNextId() {
+		return nextId;
+	}
+
+	/**
+	 * Method to retrieve the directory holding the segment files.
+	 *
+	 * @return The log directory.
+	 */
+	public File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * Method used to write the records out to the storage device.  Records
+	 * reach the files without this, but may be lost if the machine (rather
+	 * than the process) fails.
+	 */
+	public void flush() {
+		if (segment != null) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Method used to flush and close the log.
+	 *
+	 * @throws IOException Thrown if the current segment cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (file != null) {
+			flush();
+			file.close();
+			file = null;
+			segment = null;
+		}
+
+		// Make the next record fail in roll().
+		limit = position;
+		closed = true;
+	}
+
+	/**
+	 * Helper method used to list the segment files of a log, in id order.
+	 *
+	 * @param dir The log directory.
+	 *
+	 * @return The segment files.
+	 */
+	/* package */ static File[] listSegments(File dir) {
+		File[] segments = dir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File f) {
+				return f.isFile() && f.getName().endsWith(SUFFIX);
+			}
+		});
+		if (segments == null) {
+			return new File[0];
+		}
+
+		// The names are zero-padded ids, so they sort in id order.
+		Arrays.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * Helper method used to map a whole segment file.
+	 *
+	 * @param file The segment file.
+	 * @param mode The mapping mode.
+	 *
+	 * @return The mapped segment.
+	 *
+	 * @throws IOException Thrown if the file cannot be mapped.
+	 */
+	/* package */ static MappedByteBuffer map(RandomAccessFile file,
+			FileChannel.MapMode mode) throws IOException {
+		return file.getChannel().map(mode, 0, file.length());
+	}
+
+	/**
+	 * Helper method used to check the header of a segment and count its
+	 * records.  Records are written in order, so the written ones are
+	 * found by a binary search for the first record without an id.
+	 *
+	 * @param segment The mapped segment.
+	 * @param name The segment file, for error messages.
+	 *
+	 * @return The number of records in the segment.
+	 *
+	 * @throws IOException Thrown if the segment is not a genealogy segment.
+	 */
+	/* package */ static int countRecords(ByteBuffer segment, File name)
+			throws IOException {
+		if (segment.capacity() < HEADER_SIZE || segment.getInt(0) != MAGIC
+				|| segment.getInt(4) != RECORD_SIZE) {
+			throw new IOException("Not a genealogy segment: " + name);
+		}
+
+		int lo = 0;
+		int hi = (segment.capacity() - HEADER_SIZE) / RECORD_SIZE;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (segment.getLong(HEADER_SIZE + mid * RECORD_SIZE + ID) != 0L) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+
+		return lo;
+	}
+
+	/**
+	 * Helper method used to move on to a new segment once the current one
+	 * is full.
+	 */
+	private void roll() {
+		if (closed) {
+			throw new IllegalStateException("The log is closed");
+		}
+
+		try {
+			if (file != null) {
+				file.close();
+			}
+
+			File f = new File(dir, String.format("%020d", nextId) + SUFFIX);
+			file = new RandomAccessFile(f, "rw");
+			file.setLength(HEADER_SIZE + (long) segmentRecords * RECORD_SIZE);
+			segment = map(file, FileChannel.MapMode.READ_WRITE);
+			segment.putInt(0, MAGIC);
+			segment.putInt(4, RECORD_SIZE);
+			segment.putLong(8, nextId);
+			position = HEADER_SIZE;
+			limit = segment.capacity();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
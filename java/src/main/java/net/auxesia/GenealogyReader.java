@@ -0,0 +1,284 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Class used to query a log written by <code>GenealogyLog</code> after the
+ * evolution is over.
+ *
+ * The segment files are mapped read-only, and since the ids are sequential
+ * a record is found by its id alone, without an index.  The reader sees the
+ * records that were written when it was opened.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+public class GenealogyReader implements Closeable {
+
+	/**
+	 * A single record of the log.
+	 */
+	public static final class Record {
+		private final long id;
+		private final long parent1;
+		private final long parent2;
+		private final int generation;
+		private final int fitness;
+		private final int pivot;
+		private final int point;
+		private final int operator;
+
+		private Record(MappedByteBuffer segment, int p) {
+			this.id = segment.getLong(p + GenealogyLog.ID);
+			this.parent1 = segment.getLong(p + GenealogyLog.PARENT1);
+			this.parent2 = segment.getLong(p + GenealogyLog.PARENT2);
+			this.generation = segment.getInt(p + GenealogyLog.GENERATION);
+			this.fitness = segment.getInt(p + GenealogyLog.FITNESS);
+			this.pivot = segment.getInt(p + GenealogyLog.PIVOT);
+			this.point = segment.getInt(p + GenealogyLog.POINT);
+			this.operator = segment.getInt(p + GenealogyLog.OPERATOR);
+		}
+
+		/**
+		 * Method to retrieve the id of the <code>Chromosome</code>.
+		 *
+		 * @return The id.
+		 */
+		public long getId() {
+			return id;
+		}
+
+		/**
+		 * Method to retrieve the id of the first parent: the head of a
+		 * crossover, or the mutated or refined <code>Chromosome</code>.
+		 *
+		 * @return The id, or 0 if there is no such parent.
+		 */
+		public long getParent1() {
+			return parent1;
+		}
+
+		/**
+		 * Method to retrieve the id of the second parent, the tail of a
+		 * crossover.
+		 *
+		 * @return The id, or 0 if there is no such parent.
+		 */
+		public long getParent2() {
+			return parent2;
+		}
+
+		/**
+		 * Method to retrieve the generation the <code>Chromosome</code>
+		 * was bred for.
+		 *
+		 * @return The generation.
+		 */
+		public int getGeneration() {
+			return generation;
+		}
+
+		/**
+		 * Method to retrieve the fitness of the <code>Chromosome</code>.
+		 *
+		 * @return The fitness.
+		 */
+		public int getFitness() {
+			return fitness;
+		}
+
+		/**
+		 * Method to retrieve the crossover pivot.
+		 *
+		 * @return The pivot, or -1 if there was no crossover.
+		 */
+		public int getPivot() {
+			return pivot;
+		}
+
+		/**
+		 * Method to retrieve the mutated position.
+		 *
+		 * @return The position, or -1 if there was no mutation.
+		 */
+		public int getPoint() {
+			return point;
+		}
+
+		/**
+		 * Method to retrieve the operator that built the
+		 * <code>Chromosome</code>, as defined by <code>GenealogyLog</code>.
+		 *
+		 * @return The operator.
+		 */
+		public int getOperator() {
+			return operator;
+		}
+
+		/**
+		 * @see Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "id=" + id + " parent1=" + parent1 + " parent2=" + parent2
+					+ " generation=" + generation + " fitness=" + fitness
+					+ " operator=" + operator + " pivot=" + pivot
+					+ " point=" + point;
+		}
+	}
+
+	private final RandomAccessFile[] files;
+	private final MappedByteBuffer[] segments;
+	private final long[] firstIds;
+	private final int[] counts;
+	private final long size;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param dir The log directory.
+	 *
+	 * @throws IOException Thrown if the segments cannot be read.
+	 */
+	public GenealogyReader(File dir) throws IOException {
+		File[] names = GenealogyLog.listSegments(dir);
+		files = new RandomAccessFile[names.length];
+		segments = new MappedByteBuffer[names.length];
+		firstIds = new long[names.length];
+		counts = new int[names.length];
+
+		long total = 0;
+		try {
+			for (int i = 0; i < names.length; i++) {
+				files[i] = new RandomAccessFile(names[i], "r");
+				segments[i] = GenealogyLog.map(files[i],
+						FileChannel.MapMode.READ_ONLY);
+				counts[i] = GenealogyLog.countRecords(segments[i], names[i]);
+				firstIds[i] = segments[i].getLong(8);
+				total += counts[i];
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		size = total;
+	}
+
+	/**
+	 * Method to retrieve the number of records in the log.
+	 *
+	 * @return The number of records.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Method used to look up the record of a <code>Chromosome</code>.
+	 *
+	 * @param id The id of the <code>Chromosome</code>.
+	 *
+	 * @return The record, or <code>null</code> if the log has no record
+	 * with this id.
+	 */
+	public Record get(long id) {
+		int s = Arrays.binarySearch(firstIds, id);
+		if (s < 0) {
+			s = -s - 2;
+		}
+		if (s < 0 || id - firstIds[s] >= counts[s]) {
+			return null;
+		}
+
+		int p = GenealogyLog.HEADER_SIZE
+				+ (int) (id - firstIds[s]) * GenealogyLog.RECORD_SIZE;
+		return new Record(segments[s], p);
+	}
+
+	/**
+	 * Method used to retrieve the full ancestry of a
+	 * <code>Chromosome</code>: its own record and the records of all of its
+	 * ancestors, each listed once, newest first.
+	 *
+	 * @param id The id of the <code>Chromosome</code>.
+	 *
+	 * @return The records of the lineage, which is empty if the log has no
+	 * record with this id.
+	 */
+	public List<Record> getLineage(long id) {
+		List<Record> lineage = new ArrayList<Record>();
+		Set<Long> seen = new HashSet<Long>();
+
+		// A parent always has a lower id than its child, so visiting the
+		// highest id first lists every record after all of its children.
+		PriorityQueue<Long> pending = new PriorityQueue<Long>(16,
+				Collections.<Long>reverseOrder());
+		pending.add(id);
+		seen.add(id);
+		while (!pending.isEmpty()) {
+			Record r = get(pending.poll());
+			if (r == null) {
+				continue;
+			}
+
+			lineage.add(r);
+			for (long parent : new long[] { r.getParent1(), r.getParent2() }) {
+				if (parent != 0L && seen.add(parent)) {
+					pending.add(parent);
+				}
+			}
+		}
+
+		return lineage;
+	}
+
+	/**
+	 * Method used to close the segment files.  The mappings themselves are
+	 * released once the reader is no longer referenced.
+	 *
+	 * @throws IOException Thrown if a segment file cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		for (RandomAccessFile f : files) {
+			if (f != null) {
+				f.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.util.Arrays;
+
+/**
+ * A minimal set of <code>long</code> values using open addressing with
+ * linear probing, used by <code>Population</code> to spot duplicate genes
+ * by their 64-bit hash without boxing.
+ *
+ * The set is sized once for an expected number of values and is meant to
+ * be cleared and reused, so it never grows and never allocates after it is
+ * built.  Adding more values than it was sized for simply makes
+ * <code>add(long)</code> report every further value as new.
+ *
+ * Note that this class is not thread-safe.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+/* package */ class LongHashSet {
+
+	/** The value marking an empty slot. */
+	private static final long EMPTY = 0L;
+
+	/** The value stored in place of <code>EMPTY</code>. */
+	private static final long ZERO_KEY = 0x9E3779B97F4A7C15L;
+
+	private final long[] table;
+	private final int mask;
+	private final int maxSize;
+	private int size;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param expected The number of values the set must hold, where
+	 * expected >= 0.  The table is kept at most half full.
+	 */
+	/* package */ LongHashSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1;
+		this.table = new long[capacity];
+		this.mask = capacity - 1;
+		this.maxSize = capacity / 2;
+	}
+
+	/**
+	 * Method used to add a value to the set.
+	 *
+	 * @param value The value to add.
+	 *
+	 * @return <code>true</code> if the value was not already in the set,
+	 * <code>false</code> if it was.
+	 */
+	/* package */ boolean add(long value) {
+		long key = (value == EMPTY) ? ZERO_KEY : value;
+
+		// Spread the bits, since the low bits are used as the index.
+		long h = key * 0x9E3779B97F4A7C15L;
+		int idx = (int) (h ^ (h >>> 32)) & mask;
+		while (table[idx] != EMPTY) {
+			if (table[idx] == key) {
+				return false;
+			}
+			idx = (idx + 1) & mask;
+		}
+
+		if (size < maxSize) {
+			table[idx] = key;
+			++size;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Method used to remove all of the values from the set.
+	 */
+	/* package */ void clear() {
+		if (size > 0) {
+			Arrays.fill(table, EMPTY);
+			size = 0;
+		}
+	}
+
+	/**
+	 * Method to retrieve the number of values in the set.
+	 *
+	 * @return The number of values.
+	 */
+	/* package */ int size() {
+		return size;
+	}
+}
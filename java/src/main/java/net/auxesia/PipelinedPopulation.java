@@ -0,0 +1,445 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.util.Random;
+
+/**
+ * A <code>Population</code> that breeds each generation through a pipeline
+ * of stages running on their own threads, instead of performing selection,
+ * variation and ordering one child at a time.
+ *
+ * The stages are connected by preallocated single-producer/single-consumer
+ * ring buffers:
+ *
+ * <ol>
+ * <li>The selection thread decides, slot by slot, whether to cross over or
+ * copy, picks the parents via tournament selection and the pivot, and 
+ * decides whether and where each child is mutated.</li>
+ * <li>The variation thread mates and mutates the selected parents.  Note
+ * that a <code>Chromosome</code> is evaluated as it is built, so this stage
+ * also covers the fitness evaluation.</li>
+ * <li>The calling thread collects the children in order into the buffer,
+ * recording them in the genealogy log and culling duplicates if enabled, 
+ * which <code>evolve()</code> then sorts as usual.</li>
+ * </ol>
+ *
+ * While the calling thread is still collecting one child, the variation
+ * thread is already building the next and the selection thread is picking
+ * parents further ahead, so all three stages keep busy.  This pays off when
+ * building and evaluating a child is expensive; for cheap genes the
+ * hand-off costs more than it saves and <code>Population</code> is faster.
+ *
+ * The stage threads are started by the first generation and park while
+ * they wait, so they cost nothing between generations.  Since they keep the
+ * population reachable, they must be stopped with <code>close()</code> once
+ * the population is no longer needed.  A failure in a stage is passed back
+ * to the thread calling <code>evolve()</code>.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+public class PipelinedPopulation extends Population implements AutoCloseable {
+
+	/** The number of entries in each ring buffer. */
+	private static final int RING_SIZE = 1024;
+
+	/** The kinds of task passed between the stages. */
+	private static final int START = 0;
+	private static final int PAIR = 1;
+	private static final int COPY = 2;
+	private static final int END = 3;
+	private static final int STOP = 4;
+	private static final int ERROR = 5;
+
+	/**
+	 * A preallocated entry of a ring buffer.  Depending on the stage, the
+	 * <code>Chromosome</code>s are either the parents or the children, 
+	 * along with their parents.  A mutation point of -1 means no mutation.
+	 */
+	private static final class Task {
+		private int kind;
+		private Chromosome first;
+		private Chromosome second;
+		private Chromosome head;
+		private Chromosome tail;
+		private int pivot;
+		private int firstPoint;
+		private int secondPoint;
+		private boolean single;
+		private Chromosome[] population;
+		private int from;
+		private int to;
+		private Throwable error;
+	}
+
+	private final SpscRing<Task> control = newRing();
+	private final SpscRing<Task> selected = newRing();
+	private final SpscRing<Task> bred = newRing();
+	private Thread selector;
+	private Thread breeder;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param size The size of the population, where size > 0.
+	 * @param crossoverRatio The crossover ratio for the population during
+	 * evolution, where 0.0 <= crossoverRatio <= 1.0.
+	 * @param elitismRatio The elitism ratio for the population during
+	 * evolution, where 0.0 <= elitismRatio < 1.0.
+	 * @param mutationRatio The mutation ratio for the population during
+	 * evolution, where 0.0 <= mutationRatio <= 1.0.
+	 */
+	public PipelinedPopulation(int size, float crossoverRatio,
+			float elitismRatio, float mutationRatio) {
+		this(size, crossoverRatio, elitismRatio, mutationRatio,
+				Chromosome.DEFAULT_TARGET);
+	}
+
+	/**
+	 * Constructor used to evolve a population towards an arbitrary target
+	 * gene.
+	 *
+	 * @param size The size of the population, where size > 0.
+	 * @param crossoverRatio The crossover ratio for the population during
+	 * evolution, where 0.0 <= crossoverRatio <= 1.0.
+	 * @param elitismRatio The elitism ratio for the population during
+	 * evolution, where 0.0 <= elitismRatio < 1.0.
+	 * @param mutationRatio The mutation ratio for the population during
+	 * evolution, where 0.0 <= mutationRatio <= 1.0.
+	 * @param target The target gene to evolve towards.
+	 */
+	public PipelinedPopulation(int size, float crossoverRatio,
+			float elitismRatio, float mutationRatio, String target) {
+		super(size, crossoverRatio, elitismRatio, mutationRatio, target);
+	}
+
+	/**
+	 * Method used to stop the stage threads, waiting for them to finish.
+	 * Evolving the population afterwards starts them again.
+	 */
+	public synchronized void shutdown() {
+		if (selector != null) {
+			control.claim().kind = STOP;
+			control.publish();
+			join(selector);
+			join(breeder);
+			selector = null;
+			breeder = null;
+		}
+	}
+
+	/**
+	 * Method used to stop the stage threads.  This is the same as
+	 * <code>shutdown()</code>.
+	 */
+	@Override
+	public void close() {
+		shutdown();
+	}
+
+	/**
+	 * Breeds the next generation through the pipeline, with the calling
+	 * thread acting as the ordering stage.
+	 *
+	 * @throws IllegalStateException Thrown if a stage failed to process the
+	 * generation, in which case the generation is abandoned.
+	 */
+	@Override
+	/* package */ synchronized void breed(Chromosome[] buffer, int idx) {
+		if (selector == null) {
+			startStages();
+		}
+
+		// Kick off the selection stage for this generation.
+		Task start = control.claim();
+		start.kind = START;
+		start.population = getPopulation();
+		start.from = idx;
+		start.to = buffer.length;
+		control.publish();
+
+		// Collect the children in order until the generation is complete.
+		Throwable error = null;
+		boolean complete = false;
+		try {
+			while (true) {
+				Task task = bred.peek();
+				if (task.kind == END || task.kind == ERROR) {
+					error = task.error;
+					task.error = null;
+					bred.release();
+					break;
+				}
+
+				record(task.first, task.head, task.tail, task.pivot, 
+						task.firstPoint);
+				buffer[idx++] = unique(task.first);
+				if (task.second != null) {
+					record(task.second, task.tail, task.head, task.pivot, 
+							task.secondPoint);
+					buffer[idx++] = unique(task.second);
+				}
+				clear(task);
+				bred.release();
+			}
+			complete = true;
+		} finally {
+			// If this stage failed, drain the rest of the generation so
+			// that the next one starts from empty rings.
+			if (!complete) {
+				drain();
+			}
+		}
+
+		if (error != null) {
+			throw new IllegalStateException("A pipeline stage failed", error);
+		}
+	}
+
+	/**
+	 * Helper method used to start the stage threads.
+	 */
+	private void startStages() {
+		selector = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				select();
+			}
+		}, "ga-selection");
+		breeder = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				vary();
+			}
+		}, "ga-variation");
+
+		selector.setDaemon(true);
+		breeder.setDaemon(true);
+		selector.start();
+		breeder.start();
+	}
+
+	/**
+	 * The selection stage.  For every slot in a generation this makes the
+	 * same decisions as <code>Population.breed()</code>, but leaves the
+	 * actual mating and mutation to the next stage.  A failure ends the
+	 * generation with an error task, and the stage carries on with the
+	 * next one.
+	 */
+	private void select() {
+		Random rand = new Random();
+		float crossover = getCrossover();
+		float mutation = getMutation();
+
+		while (true) {
+			Task start = control.peek();
+			int kind = start.kind;
+			Chromosome[] population = start.population;
+			int idx = start.from;
+			int end = start.to;
+			start.population = null;
+			control.release();
+
+			if (kind == STOP) {
+				selected.claim().kind = STOP;
+				selected.publish();
+				return;
+			}
+
+			try {
+				while (idx < end) {
+					Task task = selected.claim();
+					if (rand.nextFloat() <= crossover) {
+						Chromosome[] parents = selectParents();
+						task.kind = PAIR;
+						task.first = parents[0];
+						task.second = parents[1];
+						task.single = (idx + 1 == end);
+						task.pivot = rand.nextInt(parents[0].length());
+						task.firstPoint = point(rand, parents[0], mutation);
+						task.secondPoint = task.single ? -1
+								: point(rand, parents[0], mutation);
+						idx += 2;
+					} else {
+						task.kind = COPY;
+						task.first = population[idx];
+						task.second = null;
+						task.firstPoint = point(rand, population[idx],
+								mutation);
+						++idx;
+					}
+					selected.publish();
+				}
+
+				selected.claim().kind = END;
+			} catch (Throwable t) {
+				// Reuses the entry claimed by the failed task, if any.
+				Task task = selected.claim();
+				task.kind = ERROR;
+				task.error = t;
+			}
+			selected.publish();
+		}
+	}
+
+	/**
+	 * The variation stage.  Mates and mutates the selected parents and
+	 * passes the resulting children on to the ordering stage.  After a 
+	 * failure the rest of the generation is skipped and its end is passed
+	 * on as an error task, and the stage carries on with the next one.
+	 */
+	private void vary() {
+		Throwable failure = null;
+		while (true) {
+			Task in = selected.peek();
+			if (in.kind == STOP) {
+				selected.release();
+				return;
+			}
+
+			if (in.kind == END || in.kind == ERROR) {
+				Task out = bred.claim();
+				out.kind = (failure != null) ? ERROR : in.kind;
+				out.error = (failure != null) ? failure : in.error;
+				in.error = null;
+				failure = null;
+				selected.release();
+				bred.publish();
+				continue;
+			}
+
+			Chromosome first = null;
+			Chromosome second = null;
+			if (failure == null) {
+				try {
+					if (in.kind == PAIR) {
+						first = mutate(in.first.crossover(in.second, 
+								in.pivot), in.firstPoint);
+
+						// The last slot only has room for the first child.
+						if (!in.single) {
+							second = mutate(in.second.crossover(in.first,
+									in.pivot), in.secondPoint);
+						}
+					} else {
+						first = mutate(in.first, in.firstPoint);
+					}
+				} catch (Throwable t) {
+					failure = t;
+				}
+			}
+
+			if (failure == null) {
+				Task out = bred.claim();
+				out.kind = in.kind;
+				out.first = first;
+				out.second = second;
+				out.head = in.first;
+				out.tail = (in.kind == PAIR) ? in.second : null;
+				out.pivot = in.pivot;
+				out.firstPoint = in.firstPoint;
+				out.secondPoint = in.secondPoint;
+				bred.publish();
+			}
+
+			in.first = null;
+			in.second = null;
+			selected.release();
+		}
+	}
+
+	/**
+	 * Helper method used to decide whether and where a child is mutated,
+	 * based on the mutation ratio.
+	 */
+	private static int point(Random rand, Chromosome c, float mutation) {
+		return (rand.nextFloat() <= mutation) ? rand.nextInt(c.length()) : -1;
+	}
+
+	/**
+	 * Helper method used to mutate a child at the given point, if any.
+	 */
+	private static Chromosome mutate(Chromosome c, int point) {
+		return (point >= 0) ? c.mutate(point) : c;
+	}
+
+	/**
+	 * Helper method used to discard the children of a generation up to and
+	 * including its end.
+	 */
+	private void drain() {
+		while (true) {
+			Task task = bred.peek();
+			int kind = task.kind;
+			task.error = null;
+			clear(task);
+			bred.release();
+			if (kind == END || kind == ERROR) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Helper method used to drop the references held by a task.
+	 */
+	private static void clear(Task task) {
+		task.first = null;
+		task.second = null;
+		task.head = null;
+		task.tail = null;
+	}
+
+	/**
+	 * Helper method used to wait for a stage thread to finish.
+	 */
+	private static void join(Thread thread) {
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		// Restore the interrupt for the caller to deal with.
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Helper method used to build a ring of preallocated tasks.
+	 */
+	private static SpscRing<Task> newRing() {
+		Task[] tasks = new Task[RING_SIZE];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new Task();
+		}
+
+		return new SpscRing<Task>(tasks);
+	}
+}
@@ -25,6 +25,7 @@ package net.auxesia;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Class representing a population for a genetic algorithm simulation.
@@ -45,13 +46,78 @@ public class Population {
 	/** The size of the tournament. */
 	private static final int TOURNAMENT_SIZE = 3;
 	
-	/** Convenience randomizer. */
-	private static final Random rand = new Random(System.currentTimeMillis());
+	/** Convenience randomizer, local to the calling thread. */
+	private static Random rand() {
+		return ThreadLocalRandom.current();
+	}
+	
+	/** How many children are bred between checks for a halt. */
+	private static final int BATCH_SIZE = 256;
+	
+	/** How many times a duplicate child is re-mutated before it is kept. */
+	private static final int MAX_REMUTATIONS = 3;
+	
+	/** The lowest character tried by the local search. */
+	private static final char MIN_CHAR = 32;
+	
+	/** The highest character tried by the local search. */
+	private static final char MAX_CHAR = 126;
+	
+	/** 
+	 * The flags making up the kind of a child, which match the operators 
+	 * of <code>GenealogyLog</code>.
+	 */
+	private static final int CROSSOVER = GenealogyLog.CROSSOVER;
+	private static final int MUTATION = GenealogyLog.MUTATION;
+	
+	/** How quickly the surrogate's bias corrections follow the errors. */
+	private static final float LEARNING_RATE = 0.5f;
 
 	private float elitism;
 	private float mutation;
 	private float crossover;
 	private Chromosome[] popArr;
+	private int generation;
+	
+	/** The <code>System.nanoTime()</code> to stop breeding at, if timed. */
+	private long deadline;
+	private boolean timed;
+	
+	private int localSearchBudget;
+	private int localSearchFrequency = 1;
+	private long localSearchEvaluations;
+	private long localSearchImprovements;
+	
+	/** The genes of the generation being bred, when duplicates are culled. */
+	private LongHashSet genes;
+	private long duplicates;
+	
+	/** The fraction of the candidate children that are really evaluated. */
+	private float screening = 1.0f;
+	private final float[] surrogateBias = new float[4];
+	private long screened;
+	private long built;
+	private long surrogateHits;
+	private double surrogateError;
+	
+	/** Scratch space describing the candidates of a screened generation. */
+	private Chromosome[] candHead;
+	private Chromosome[] candTail;
+	private int[] candPivot;
+	private int[] candKind;
+	private float[] candEstimate;
+	private long[] candOrder;
+	private boolean[] placed;
+	
+	/** The number of children built, and so evaluated, while breeding. */
+	private long evaluated;
+	
+	/** Scratch space for the moves accepted by the local search. */
+	private int[] movePositions = new int[0];
+	private char[] moveValues = new char[0];
+	
+	/** Where the origin of every new <code>Chromosome</code> is recorded. */
+	private GenealogyLog genealogy;
 
 	/**
 	 * Default constructor.
@@ -68,15 +134,37 @@ public class Population {
 	 */
 	public Population(int size, float crossoverRatio, float elitismRatio, 
 			float mutationRatio) {
+		this(size, crossoverRatio, elitismRatio, mutationRatio, 
+				Chromosome.DEFAULT_TARGET);
+	}
+
+	/**
+	 * Constructor used to evolve a population towards an arbitrary target 
+	 * gene.
+	 * 
+	 * @param size The size of the population, where size > 0.
+	 * @param crossoverRatio The crossover ratio for the population during 
+	 * evolution, where 0.0 <= crossoverRatio <= 1.0.
+	 * @param elitismRatio The elitism ratio for the population during
+	 * evolution, where 0.0 <= elitismRatio < 1.0.
+	 * @param mutationRatio The mutation ratio for the population during
+	 * evolution, where 0.0 <= mutationRatio <= 1.0.
+	 * @param target The target gene to evolve towards.
+	 * 
+	 * @throws IllegalArgumentException Thrown if an invalid ratio is given.
+	 */
+	public Population(int size, float crossoverRatio, float elitismRatio, 
+			float mutationRatio, String target) {
 		
 		this.crossover = crossoverRatio;
 		this.elitism = elitismRatio;
 		this.mutation = mutationRatio;
 		
 		// Generate an initial population
+		char[] targetArr = target.toCharArray();
 		this.popArr = new Chromosome[size];
 		for (int i = 0; i < size; i++) {
-			this.popArr[i] = Chromosome.generateRandom();
+			this.popArr[i] = Chromosome.generateRandom(targetArr);
 		}
 
 		Arrays.sort(this.popArr);
@@ -93,50 +181,278 @@ public class Population {
 		// the elitism ratio.
 		int idx = Math.round(popArr.length * elitism);
 		System.arraycopy(popArr, 0, buffer, 0, idx);
+		
+		// Start tracking the genes of the new generation with the elite.
+		if (genes != null) {
+			genes.clear();
+			for (int i = 0; i < idx; i++) {
+				genes.add(buffer[i].geneHash());
+			}
+		}
+
+		// Fill the remainder of the buffer with the next generation.
+		breed(buffer, idx);
 
+		// Sort the buffer based on fitness.
+		Arrays.sort(buffer);
+		
+		// Reset the population
+		popArr = buffer;
+		++generation;
+		
+		// Refine the elite with a local search, if enabled.
+		if (localSearchBudget > 0 && generation % localSearchFrequency == 0) {
+			refineElite();
+		}
+	}
+	
+	/**
+	 * Method used to breed the non-elite portion of the next generation.
+	 * Subclasses may override this method to change how the children are
+	 * produced, as long as every slot from <code>idx</code> onwards is
+	 * filled in.
+	 * 
+	 * @param buffer The buffer for the next generation.
+	 * @param idx The first slot of the buffer to fill in.
+	 */
+	/* package */ void breed(Chromosome[] buffer, int idx) {
+		if (screening < 1.0f) {
+			screen(buffer, idx);
+			return;
+		}
+		
 		// Iterate over the remainder of the population and evolve as 
 		// appropriate.
-		while (idx < buffer.length) {
+		for (int n = 1; idx < buffer.length; n++) {
+			// Every so often, check whether to cut the generation short.
+			if (n % BATCH_SIZE == 0 && halted()) {
+				for (; idx < buffer.length; idx++) {
+					buffer[idx] = unique(popArr[idx]);
+				}
+				break;
+			}
+			
 			// Check to see if we should perform a crossover. 
-			if (rand.nextFloat() <= crossover) {
+			if (rand().nextFloat() <= crossover) {
 				
-				// Select the parents and mate to get their children
+				// Select the parents and build the two children of 
+				// mate(), one at a time so that the pivot is known.
 				Chromosome[] parents = selectParents();
-				Chromosome[] children = parents[0].mate(parents[1]);
-				
-				// Check to see if the first child should be mutated.
-				if (rand.nextFloat() <= mutation) {
-					buffer[idx++] = children[0].mutate();
-				} else {
-					buffer[idx++] = children[0];
-				}
+				int pivot = rand().nextInt(parents[0].length());
+				buffer[idx++] = vary(parents[0], parents[1], pivot);
 				
 				// Repeat for the second child, if there is room.
 				if (idx < buffer.length) {
-					if (rand.nextFloat() <= mutation) {
-						buffer[idx] = children[1].mutate();
-					} else {
-						buffer[idx] = children[1];
-					}
+					buffer[idx] = vary(parents[1], parents[0], pivot);
 				}
 			} else { // No crossover, so copy verbatium.
-				// Determine if mutation should occur.
-				if (rand.nextFloat() <= mutation) {
-					buffer[idx] = popArr[idx].mutate();
-				} else {
-					buffer[idx] = popArr[idx];
-				}
+				buffer[idx] = vary(popArr[idx], null, -1);
 			}
 			
 			// Increase our counter
 			++idx;
 		}
-
-		// Sort the buffer based on fitness.
-		Arrays.sort(buffer);
+	}
+	
+	/**
+	 * Method used to set a deadline for the evolution.  Once the deadline 
+	 * passes, or once the evolving thread is interrupted, 
+	 * <code>evolve()</code> stops breeding within a small batch of children
+	 * and carries the rest of the current generation over unchanged (still
+	 * culling duplicates, if enabled), so that it still returns promptly 
+	 * with a complete population.  The local search stops after the elite
+	 * <code>Chromosome</code> it is refining.
+	 * 
+	 * @param deadline The <code>System.nanoTime()</code> value to stop 
+	 * breeding at.
+	 */
+	/* package */ void setDeadline(long deadline) {
+		this.deadline = deadline;
+		this.timed = true;
+	}
+	
+	/**
+	 * Method used to remove the deadline set by 
+	 * <code>setDeadline(long)</code>.  Interrupts are still honoured.
+	 */
+	/* package */ void clearDeadline() {
+		this.timed = false;
+	}
+	
+	/**
+	 * Method used to record the origin of every new <code>Chromosome</code>
+	 * in a genealogy log, for analysing the lineage of a solution later on
+	 * (see <code>GenealogyReader</code>).  Members of the current 
+	 * generation that were not recorded yet are recorded as random ones.
+	 * The log is not closed by the population.
+	 * 
+	 * @param log The log to record to, or <code>null</code> to stop 
+	 * recording.
+	 */
+	public void setGenealogy(GenealogyLog log) {
+		this.genealogy = log;
+		if (log != null) {
+			for (Chromosome c : popArr) {
+				if (c.id == 0L) {
+					log.record(c, null, null, GenealogyLog.RANDOM, 
+							generation, -1, -1);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Method used to enable the memetic stage of the evolution.  When
+	 * enabled, every <code>frequency</code> generations each member of the 
+	 * elite is refined by a greedy local search of up to <code>budget</code>
+	 * fitness evaluations.
+	 * 
+	 * @param budget The maximum number of fitness evaluations spent on each
+	 * elite <code>Chromosome</code>, where 0 disables the local search.
+	 * @param frequency The number of generations between local searches,
+	 * where frequency > 0.
+	 * 
+	 * @throws IllegalArgumentException Thrown if an invalid budget or
+	 * frequency is given.
+	 */
+	public void setLocalSearch(int budget, int frequency) {
+		if (budget < 0) {
+			throw new IllegalArgumentException("budget must be >= 0");
+		} else if (frequency <= 0) {
+			throw new IllegalArgumentException("frequency must be > 0");
+		}
 		
-		// Reset the population
-		popArr = buffer;
+		this.localSearchBudget = budget;
+		this.localSearchFrequency = frequency;
+		this.movePositions = new int[budget];
+		this.moveValues = new char[budget];
+	}
+	
+	/**
+	 * Method used to enable the culling of duplicate genes.  When enabled, 
+	 * a child whose gene is already part of the generation being bred is 
+	 * re-mutated a few times until it is unique, so that converged 
+	 * populations do not fill up with copies of the same gene.  Genes are 
+	 * compared by their 64-bit hash.
+	 * 
+	 * @param unique <code>true</code> to cull duplicates, <code>false</code>
+	 * otherwise.
+	 */
+	public void setUnique(boolean unique) {
+		this.genes = unique ? new LongHashSet(popArr.length) : null;
+	}
+	
+	/**
+	 * Method to retrieve the number of duplicate children found so far.
+	 * 
+	 * @return The number of duplicates.
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+	
+	/**
+	 * Method used to enable surrogate pre-screening of the children.  When
+	 * enabled, a candidate child is described for every slot of the next
+	 * generation and its fitness is estimated from its parents, weighted by
+	 * how much of the gene each contributes, plus a bias correction learned
+	 * from past real evaluations.  Only the most promising fraction of the
+	 * candidates are then actually built and evaluated, and the remaining 
+	 * slots are taken by the best non-elite members of the current 
+	 * generation that were not already carried over, which need no 
+	 * evaluation.
+	 * 
+	 * Since the carried over members quickly crowd out the diversity of the
+	 * population, screening also turns on the culling of duplicate genes 
+	 * (see <code>setUnique(boolean)</code>).  Note that 
+	 * <code>PipelinedPopulation</code> does not screen children.
+	 * 
+	 * @param ratio The fraction of candidates to evaluate, where 
+	 * 0.0 < ratio <= 1.0, and 1.0 disables the screening.
+	 * 
+	 * @throws IllegalArgumentException Thrown if an invalid ratio is given.
+	 */
+	public void setScreening(float ratio) {
+		if (ratio <= 0.0f || ratio > 1.0f) {
+			throw new IllegalArgumentException("ratio out of range");
+		}
+		
+		this.screening = ratio;
+		if (ratio < 1.0f && genes == null) {
+			setUnique(true);
+		}
+		this.candHead = new Chromosome[popArr.length];
+		this.candTail = new Chromosome[popArr.length];
+		this.candPivot = new int[popArr.length];
+		this.candKind = new int[popArr.length];
+		this.candEstimate = new float[popArr.length];
+		this.candOrder = new long[popArr.length];
+		this.placed = new boolean[popArr.length];
+	}
+	
+	/**
+	 * Method to retrieve the number of candidate children estimated by the
+	 * surrogate so far.  Unchanged copies of the current generation are not
+	 * counted, since they need no evaluation.
+	 * 
+	 * @return The number of screened candidates.
+	 */
+	public long getScreened() {
+		return screened;
+	}
+	
+	/**
+	 * Method to retrieve the number of children built, and so evaluated, 
+	 * by the evolution so far.  This counts every new 
+	 * <code>Chromosome</code>, including the re-mutations of duplicates, 
+	 * whether or not the children are screened, but not the evaluations of
+	 * the local search (see <code>getLocalSearchEvaluations()</code>).
+	 * 
+	 * @return The number of real evaluations.
+	 */
+	public long getEvaluated() {
+		return evaluated;
+	}
+	
+	/**
+	 * Method to retrieve the mean absolute error of the surrogate's 
+	 * estimates against the real fitness of the evaluated candidates.
+	 * 
+	 * @return The mean absolute error.
+	 */
+	public double getSurrogateError() {
+		return (built == 0) ? 0.0 : surrogateError / built;
+	}
+	
+	/**
+	 * Method to retrieve the fraction of evaluated candidates that turned 
+	 * out at least as fit as the estimate of the weakest candidate let 
+	 * through, that is how often the surrogate's promise held.
+	 * 
+	 * @return The hit rate, where 0.0 <= rate <= 1.0.
+	 */
+	public double getSurrogateHitRate() {
+		return (built == 0) ? 0.0 : (double) surrogateHits / built;
+	}
+	
+	/**
+	 * Method to retrieve the number of fitness evaluations spent by the 
+	 * local search so far.
+	 * 
+	 * @return The number of local search evaluations.
+	 */
+	public long getLocalSearchEvaluations() {
+		return localSearchEvaluations;
+	}
+	
+	/**
+	 * Method to retrieve the number of elite <code>Chromosome</code>s that 
+	 * were improved by the local search so far.
+	 * 
+	 * @return The number of local search improvements.
+	 */
+	public long getLocalSearchImprovements() {
+		return localSearchImprovements;
 	}
 	
 	/**
@@ -153,6 +469,16 @@ public class Population {
 		return arr;
 	}
 	
+	/**
+	 * Method used to retrieve the fittest <code>Chromosome</code> of the 
+	 * current population without copying the population.
+	 * 
+	 * @return The fittest <code>Chromosome</code>.
+	 */
+	public Chromosome getBest() {
+		return popArr[0];
+	}
+	
 	/**
 	 * Method to retrieve the elitism ratio for the population.
 	 * 
@@ -186,14 +512,14 @@ public class Population {
 	 * 
 	 * @return Two randomly selected <code>Chromsomes</code> for crossover.
 	 */
-	private Chromosome[] selectParents() {
+	/* package */ Chromosome[] selectParents() {
 		Chromosome[] parents = new Chromosome[2];
 
 		// Randomly select two parents via tournament selection.
 		for (int i = 0; i < 2; i++) {
-			parents[i] = popArr[rand.nextInt(popArr.length)];
+			parents[i] = popArr[rand().nextInt(popArr.length)];
 			for (int j = 0; j < TOURNAMENT_SIZE; j++) {
-				int idx = rand.nextInt(popArr.length);
+				int idx = rand().nextInt(popArr.length);
 				if (popArr[idx].compareTo(parents[i]) < 0) {
 					parents[i] = popArr[idx];
 				}
@@ -202,4 +528,345 @@ public class Population {
 		
 		return parents;
 	}
+
+	/**
+	 * Helper method used to determine whether breeding should stop early,
+	 * either because the deadline passed or because the evolving thread was
+	 * interrupted.
+	 * 
+	 * @return <code>true</code> if breeding should stop, <code>false</code>
+	 * otherwise.
+	 */
+	private boolean halted() {
+		return Thread.currentThread().isInterrupted() 
+				|| (timed && System.nanoTime() - deadline >= 0);
+	}
+
+	/**
+	 * Helper method used to make sure a child is the only one with its gene
+	 * in the generation being bred, if duplicates are being culled.  A 
+	 * child that is still a duplicate after a few mutations is kept as is, 
+	 * so that small gene spaces cannot stall the evolution.
+	 * 
+	 * @param c The child to check.
+	 * 
+	 * @return The child, or a mutation of it if it was a duplicate.
+	 */
+	/* package */ Chromosome unique(Chromosome c) {
+		if (genes == null) {
+			return c;
+		}
+		
+		for (int i = 0; !genes.add(c.geneHash()); i++) {
+			++duplicates;
+			if (i == MAX_REMUTATIONS) {
+				break;
+			}
+			c = mutate(c);
+		}
+		
+		return c;
+	}
+
+	/**
+	 * Method used to count a child of the generation being bred and to 
+	 * record its origin, if a genealogy log is set.  Every child built must
+	 * be passed here.  Unchanged copies are neither counted nor recorded, 
+	 * since they are not evaluated and keep the id of the original.
+	 * 
+	 * @param child The child.
+	 * @param head The parent providing the head of the gene, or the one 
+	 * that was copied if there was no crossover.
+	 * @param tail The parent providing the tail of the gene, or 
+	 * <code>null</code> if there was no crossover.
+	 * @param pivot The crossover pivot.
+	 * @param point The mutated position, or -1 if there was no mutation.
+	 */
+	/* package */ void record(Chromosome child, Chromosome head, 
+			Chromosome tail, int pivot, int point) {
+		if (child == head) {
+			return;
+		}
+		
+		++evaluated;
+		if (genealogy == null) {
+			return;
+		}
+		
+		int kind = (tail != null) ? CROSSOVER : 0;
+		if (point >= 0) {
+			kind |= MUTATION;
+		}
+		genealogy.record(child, head, tail, kind, generation + 1, 
+				(tail != null) ? pivot : -1, point);
+	}
+	
+	/**
+	 * Helper method used to build a single child, by crossover if a tail is
+	 * given and by mutation based on the mutation ratio, and to record it.
+	 * 
+	 * @param head The parent providing the head of the gene, or the one to
+	 * copy if there is no crossover.
+	 * @param tail The parent providing the tail of the gene, or 
+	 * <code>null</code> for no crossover.
+	 * @param pivot The crossover pivot.
+	 * 
+	 * @return The child, culled of duplicates.
+	 */
+	private Chromosome vary(Chromosome head, Chromosome tail, int pivot) {
+		Chromosome child = (tail != null) ? head.crossover(tail, pivot) : head;
+		
+		int point = -1;
+		if (rand().nextFloat() <= mutation) {
+			point = rand().nextInt(child.length());
+			child = child.mutate(point);
+		}
+		record(child, head, tail, pivot, point);
+		
+		return unique(child);
+	}
+	
+	/**
+	 * Helper method used to mutate a <code>Chromosome</code> and record 
+	 * the mutation.
+	 * 
+	 * @param c The <code>Chromosome</code> to mutate.
+	 * 
+	 * @return The mutated <code>Chromosome</code>.
+	 */
+	private Chromosome mutate(Chromosome c) {
+		int point = rand().nextInt(c.length());
+		Chromosome child = c.mutate(point);
+		record(child, c, null, -1, point);
+		
+		return child;
+	}
+	
+	/**
+	 * Helper method used to breed the next generation with surrogate 
+	 * pre-screening.  Unchanged copies need no evaluation, so they are 
+	 * placed straight away at the end of the buffer and only the rest of 
+	 * the candidates are ranked.
+	 * 
+	 * @param buffer The buffer for the next generation.
+	 * @param idx The first slot of the buffer to fill in.
+	 */
+	private void screen(Chromosome[] buffer, int idx) {
+		Random rand = rand();
+		int end = buffer.length;
+		int n = 0;
+		
+		// Describe and estimate a candidate child for every slot.
+		for (int j = idx; j < buffer.length; j++) {
+			// Every so often, check whether to cut the generation short.
+			if ((j - idx + 1) % BATCH_SIZE == 0 && halted()) {
+				for (int r = j; r < buffer.length; r++) {
+					buffer[--end] = unique(popArr[r]);
+					placed[r] = true;
+				}
+				break;
+			}
+			
+			Chromosome head;
+			Chromosome tail = null;
+			int pivot = 0;
+			int kind = 0;
+			float estimate;
+			
+			if (rand.nextFloat() <= crossover) {
+				Chromosome[] parents = selectParents();
+				head = parents[0];
+				tail = parents[1];
+				pivot = rand.nextInt(head.length());
+				kind |= CROSSOVER;
+				
+				float share = (float) pivot / head.length();
+				estimate = share * head.getFitness() 
+						+ (1.0f - share) * tail.getFitness();
+			} else {
+				head = popArr[j];
+				estimate = head.getFitness();
+			}
+			
+			if (rand.nextFloat() <= mutation) {
+				kind |= MUTATION;
+			} else if (kind == 0) {
+				buffer[--end] = unique(head);
+				placed[j] = true;
+				continue;
+			}
+			estimate += surrogateBias[kind];
+			
+			candHead[n] = head;
+			candTail[n] = tail;
+			candPivot[n] = pivot;
+			candKind[n] = kind;
+			candEstimate[n] = estimate;
+			candOrder[n] = ((long) Math.round(estimate) << 32) | n;
+			++n;
+		}
+		screened += n;
+		
+		// Rank the candidates by their estimate, best first.
+		Arrays.sort(candOrder, 0, n);
+		int keep = (n == 0) ? 0 : Math.max(1, Math.round(n * screening));
+		float cutoff = (n == 0) ? 0.0f 
+				: candEstimate[(int) candOrder[keep - 1]];
+		
+		// Build the most promising candidates, and track the errors.
+		float[] errors = new float[surrogateBias.length];
+		int[] counts = new int[surrogateBias.length];
+		for (int t = 0; t < keep; t++) {
+			int j = (int) candOrder[t];
+			int kind = candKind[j];
+			Chromosome child = candHead[j];
+			if ((kind & CROSSOVER) != 0) {
+				child = child.crossover(candTail[j], candPivot[j]);
+			}
+			int point = -1;
+			if ((kind & MUTATION) != 0) {
+				point = rand.nextInt(child.length());
+				child = child.mutate(point);
+			}
+			record(child, candHead[j], candTail[j], candPivot[j], point);
+			
+			float error = child.getFitness() - candEstimate[j];
+			errors[kind] += error;
+			++counts[kind];
+			surrogateError += Math.abs(error);
+			if (child.getFitness() <= cutoff) {
+				++surrogateHits;
+			}
+			
+			buffer[idx + t] = unique(child);
+		}
+		built += keep;
+		
+		// Learn the bias of each kind of candidate from this generation's
+		// mean error, which includes the optimism of picking the best
+		// estimates.
+		for (int kind = 0; kind < counts.length; kind++) {
+			if (counts[kind] > 0) {
+				surrogateBias[kind] += LEARNING_RATE * errors[kind] 
+						/ counts[kind];
+			}
+		}
+		
+		// Fill the rest with the best of the current non-elite members that
+		// are not already in the next generation, so that no duplicates are
+		// carried over only to be re-mutated.
+		int r = idx;
+		for (int t = keep; t < n; t++) {
+			while (r < buffer.length && (placed[r] 
+					|| (genes != null && !genes.add(popArr[r].geneHash())))) {
+				++r;
+			}
+			if (r < buffer.length) {
+				buffer[idx + t] = popArr[r++];
+			} else {
+				buffer[idx + t] = unique(popArr[idx + t - keep]);
+			}
+		}
+		
+		// Do not hold on to the candidates past this generation.
+		Arrays.fill(candHead, 0, n, null);
+		Arrays.fill(candTail, 0, n, null);
+		Arrays.fill(placed, idx, buffer.length, false);
+	}
+
+	/**
+	 * Helper method used to run the local search over the elite portion of
+	 * the population.
+	 */
+	private void refineElite() {
+		int count = Math.round(popArr.length * elitism);
+		for (int i = 0; i < count; i++) {
+			// Leave the rest of the elite as is once time is up.
+			if (halted()) {
+				break;
+			}
+			
+			Chromosome refined = localSearch(popArr[i]);
+			if (genealogy != null && refined != popArr[i]) {
+				genealogy.record(refined, popArr[i], null, 
+						GenealogyLog.LOCAL_SEARCH, generation, -1, -1);
+			}
+			popArr[i] = refined;
+		}
+		
+		// The elite only got better, so it still comes before the rest of
+		// the population and only needs to be sorted among itself.
+		Arrays.sort(popArr, 0, count);
+	}
+	
+	/**
+	 * Helper method used to refine a <code>Chromosome</code> with greedy 
+	 * coordinate moves.  Positions are visited once each, starting at a 
+	 * random position.  At each position the character is nudged in the 
+	 * improving direction with a doubling step, halving it on overshoot. 
+	 * Since the fitness is a sum over the positions, every move is scored 
+	 * by looking at its position alone.
+	 * 
+	 * @param c The <code>Chromosome</code> to refine.
+	 * 
+	 * @return The refined <code>Chromosome</code>, or <code>c</code> if no
+	 * improving move was found.
+	 */
+	private Chromosome localSearch(Chromosome c) {
+		int budget = localSearchBudget;
+		int moves  = 0;
+		int len    = c.length();
+		int idx    = rand().nextInt(len);
+		
+		for (int i = 0; i < len && budget > 0; i++, idx = (idx + 1) % len) {
+			char current = c.charAt(idx);
+			int bestValue = current;
+			int bestDelta = 0;
+			int dir = 0;
+			
+			// Probe a single step either way to find the improving side.
+			for (int d = -1; d <= 1 && dir == 0 && budget > 0; d += 2) {
+				int value = current + d;
+				if (value >= MIN_CHAR && value <= MAX_CHAR) {
+					--budget;
+					int delta = c.fitnessDelta(idx, (char) value);
+					if (delta < bestDelta) {
+						bestValue = value;
+						bestDelta = delta;
+						dir = d;
+					}
+				}
+			}
+			
+			// Then keep stepping that way for as long as it pays off.
+			int step = 2;
+			while (dir != 0 && step > 0 && budget > 0) {
+				int value = bestValue + dir * step;
+				if (value >= MIN_CHAR && value <= MAX_CHAR) {
+					--budget;
+					int delta = c.fitnessDelta(idx, (char) value);
+					if (delta < bestDelta) {
+						bestValue = value;
+						bestDelta = delta;
+						step *= 2;
+						continue;
+					}
+				}
+				step /= 2;
+			}
+			
+			if (bestDelta < 0) {
+				movePositions[moves] = idx;
+				moveValues[moves]    = (char) bestValue;
+				++moves;
+			}
+		}
+		
+		localSearchEvaluations += localSearchBudget - budget;
+		if (moves > 0) {
+			++localSearchImprovements;
+		}
+		
+		return c.replace(movePositions, moveValues, moves);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,318 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single solve request managed by the <code>GAServer</code>.
+ *
+ * A job evolves its own <code>Population</code> in short time slices.  After
+ * each slice the job re-submits itself to the back of the executor's queue,
+ * so that many concurrent jobs share a bounded pool of threads fairly
+ * instead of the first jobs starving the rest.
+ *
+ * Note that this object is mutable and thread-safe; the progress fields are
+ * published under the job's monitor so that waiting clients can be woken
+ * up after every slice.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+public class SolveJob implements Runnable {
+
+	/** The possible states of a job. */
+	public enum State { QUEUED, RUNNING, SOLVED, EXHAUSTED, EXPIRED,
+		CANCELLED, FAILED }
+
+	/** The wall-clock length of a single time slice. */
+	private static final long SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final long id;
+	private final String target;
+	private final int size;
+	private final float crossover;
+	private final float elitism;
+	private final float mutation;
+	private final int maxGenerations;
+	private final long deadline;
+	private final Executor executor;
+
+	/** 
+	 * Only ever touched by the thread currently running a slice, and 
+	 * dropped once the job is over.
+	 */
+	private Population pop;
+
+	private State state = State.QUEUED;
+	private int generation;
+	private Chromosome best;
+	private long finishedAt;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param id The unique identifier of the job.
+	 * @param target The target gene to evolve towards.
+	 * @param size The size of the population, where size > 0.
+	 * @param crossoverRatio The crossover ratio for the population.
+	 * @param elitismRatio The elitism ratio for the population.
+	 * @param mutationRatio The mutation ratio for the population.
+	 * @param maxGenerations The maximum number of generations to evolve.
+	 * @param timeoutMillis The wall-clock budget of the job in milliseconds,
+	 * or a value <= 0 for no limit.
+	 * @param executor The executor that runs the time slices of the job.
+	 */
+	public SolveJob(long id, String target, int size, float crossoverRatio,
+			float elitismRatio, float mutationRatio, int maxGenerations,
+			long timeoutMillis, Executor executor) {
+		this.id = id;
+		this.target = target;
+		this.size = size;
+		this.crossover = crossoverRatio;
+		this.elitism = elitismRatio;
+		this.mutation = mutationRatio;
+		this.maxGenerations = maxGenerations;
+		this.deadline = (timeoutMillis > 0)
+				? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+				: Long.MAX_VALUE;
+		this.executor = executor;
+	}
+
+	/**
+	 * Method used to queue the first time slice of the job.
+	 *
+	 * @throws RejectedExecutionException Thrown if the executor is shut down.
+	 */
+	public void start() {
+		executor.execute(this);
+	}
+
+	/**
+	 * Runs a single time slice of the job, then re-queues the job if there
+	 * is work left to do.
+	 */
+	@Override
+	public void run() {
+		synchronized (this) {
+			if (isDone()) {
+				pop = null;
+				return;
+			}
+			state = State.RUNNING;
+		}
+
+		try {
+			// Build the population lazily so that the request thread
+			// never pays for it.
+			if (pop == null) {
+				pop = new Population(size, crossover, elitism, mutation,
+						target);
+				publish(0, pop.getBest());
+			}
+
+			long sliceEnd = System.nanoTime() + SLICE_NANOS;
+			int gen = generation;
+			Chromosome current = best;
+
+			while (current.getFitness() != 0 && gen < maxGenerations
+					&& System.nanoTime() < sliceEnd && !isDone()) {
+				pop.evolve();
+				current = pop.getBest();
+				++gen;
+			}
+			publish(gen, current);
+		} catch (Throwable t) {
+			// Anything, including running out of memory, fails the job
+			// rather than leaving it running forever.
+			pop = null;
+			finish(State.FAILED);
+			return;
+		}
+
+		synchronized (this) {
+			if (isDone()) {
+				// Cancelled during the slice.
+			} else if (best.getFitness() == 0) {
+				finish(State.SOLVED);
+			} else if (generation >= maxGenerations) {
+				finish(State.EXHAUSTED);
+			} else if (System.nanoTime() >= deadline) {
+				finish(State.EXPIRED);
+			} else {
+				state = State.QUEUED;
+			}
+		}
+
+		if (isDone()) {
+			// Only the best Chromosome is needed from now on.
+			pop = null;
+			return;
+		}
+
+		try {
+			executor.execute(this);
+		} catch (RejectedExecutionException e) {
+			pop = null;
+			cancel();
+		}
+	}
+
+	/**
+	 * Method used to cancel the job.  The job stops at the end of the
+	 * current time slice.
+	 */
+	public synchronized void cancel() {
+		if (!isDone()) {
+			finish(State.CANCELLED);
+		}
+	}
+
+	/**
+	 * Method used to block until the job makes progress past the given
+	 * generation, finishes, or the timeout elapses.
+	 *
+	 * @param lastGeneration The last generation seen by the caller.
+	 * @param timeoutMillis The maximum amount of time to wait.
+	 *
+	 * @throws InterruptedException Thrown if the calling thread is
+	 * interrupted while waiting.
+	 */
+	public synchronized void awaitProgress(int lastGeneration,
+			long timeoutMillis) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeoutMillis;
+		long remaining = timeoutMillis;
+		while (!isDone() && generation <= lastGeneration && remaining > 0) {
+			wait(remaining);
+			remaining = end - System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Method to retrieve the unique identifier of the job.
+	 *
+	 * @return The job identifier.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Method to retrieve the current state of the job.
+	 *
+	 * @return The job state.
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Method to retrieve the number of generations evolved so far.
+	 *
+	 * @return The generation count.
+	 */
+	public synchronized int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Method to retrieve the best <code>Chromosome</code> found so far.
+	 *
+	 * @return The best <code>Chromosome</code>, or <code>null</code> if the
+	 * job has not started yet.
+	 */
+	public synchronized Chromosome getBest() {
+		return best;
+	}
+
+	/**
+	 * Method used to determine whether the job has finished.
+	 *
+	 * @return <code>true</code> if the job is finished, <code>false</code>
+	 * otherwise.
+	 */
+	public synchronized boolean isDone() {
+		return state != State.QUEUED && state != State.RUNNING;
+	}
+
+	/**
+	 * Method to retrieve the time at which the job finished.
+	 *
+	 * @return The <code>System.currentTimeMillis()</code> value when the job
+	 * finished, or 0 if it is still running.
+	 */
+	public synchronized long getFinishedAt() {
+		return finishedAt;
+	}
+
+	/**
+	 * Method to retrieve the number of gene characters the job holds: a 
+	 * whole generation while it runs, only the best gene once it is over.
+	 *
+	 * @return The number of characters.
+	 */
+	/* package */ synchronized long getCharacters() {
+		return isDone() ? target.length() : (long) size * target.length();
+	}
+
+	/**
+	 * Method to retrieve a plain-text status report of the job, one
+	 * <code>key=value</code> pair per line.
+	 *
+	 * @return The status report.
+	 */
+	public synchronized String getStatus() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("id=").append(id).append('\n');
+		sb.append("state=").append(state).append('\n');
+		sb.append("generation=").append(generation).append('\n');
+		if (best != null) {
+			sb.append("fitness=").append(best.getFitness()).append('\n');
+			sb.append("gene=").append(best.getGene()).append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Helper method used to publish progress and wake up any waiting
+	 * clients.
+	 */
+	private synchronized void publish(int gen, Chromosome current) {
+		generation = gen;
+		best = current;
+		notifyAll();
+	}
+
+	/**
+	 * Helper method used to move the job into a terminal state.
+	 */
+	private synchronized void finish(State terminal) {
+		state = terminal;
+		finishedAt = System.currentTimeMillis();
+		notifyAll();
+	}
+}
@@ -0,0 +1,203 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded single-producer/single-consumer ring buffer of preallocated
+ * entries, used to connect the stages of the <code>PipelinedPopulation</code>.
+ *
+ * Rather than passing new objects between threads, the producer claims the
+ * next free entry, fills it in and publishes it; the consumer peeks at the
+ * next published entry, reads it and releases it back to the producer.  No
+ * locks are taken and nothing is allocated once the ring is built.
+ *
+ * A side that has to wait spins briefly, then yields, then naps.  Napping
+ * lets entries build up, so a busy ring does not pay for a wake-up per
+ * entry.  A side that stays idle for longer parks until the other side
+ * wakes it up, so idle threads use no CPU.
+ *
+ * Note that this class is only safe with exactly one producer thread and
+ * one consumer thread.
+ *
+ * @author John Svazic
+ * @version 1.0
+ */
+/* package */ class SpscRing<E> {
+
+	/** The number of busy spins before a waiting thread starts to yield. */
+	private static final int SPIN_LIMIT = 256;
+
+	/** How long a waiting thread naps at a time. */
+	private static final long NAP_NANOS = 50000L;
+
+	/** How long a waiting thread naps before it parks until woken up. */
+	private static final long IDLE_NANOS = 10000000L;
+
+	private final E[] entries;
+	private final int mask;
+
+	/** The sequence of the next entry to be consumed. */
+	private final AtomicLong head = new AtomicLong();
+
+	/** The sequence of the next entry to be produced. */
+	private final AtomicLong tail = new AtomicLong();
+
+	/** Producer-local copy of the last head seen, to avoid re-reading it. */
+	private long cachedHead;
+
+	/** Consumer-local copy of the last tail seen, to avoid re-reading it. */
+	private long cachedTail;
+
+	/** The producer, while it is parked waiting for a free entry. */
+	private volatile Thread parkedProducer;
+
+	/** The consumer, while it is parked waiting for an entry. */
+	private volatile Thread parkedConsumer;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param entries The preallocated entries of the ring, where the length
+	 * of the array is a power of two.
+	 *
+	 * @throws IllegalArgumentException Thrown if the length of the array is
+	 * not a power of two.
+	 */
+	/* package */ SpscRing(E[] entries) {
+		if (Integer.bitCount(entries.length) != 1) {
+			throw new IllegalArgumentException(
+					"capacity must be a power of two");
+		}
+
+		this.entries = entries;
+		this.mask = entries.length - 1;
+	}
+
+	/**
+	 * Method used by the producer to claim the next free entry, waiting for
+	 * the consumer if the ring is full.
+	 *
+	 * @return The entry to fill in before calling <code>publish()</code>.
+	 */
+	/* package */ E claim() {
+		long seq = tail.get();
+		int spins = 0;
+		long idleAt = 0L;
+		while (seq - cachedHead >= entries.length) {
+			cachedHead = head.get();
+			if (seq - cachedHead < entries.length) {
+				break;
+			} else if (spins < SPIN_LIMIT * 2) {
+				spins = backOff(spins);
+			} else if (idleAt == 0L) {
+				idleAt = System.nanoTime() + IDLE_NANOS;
+			} else if (System.nanoTime() - idleAt < 0) {
+				LockSupport.parkNanos(this, NAP_NANOS);
+			} else {
+				// Re-check once registered, so a release cannot be missed.
+				parkedProducer = Thread.currentThread();
+				if (seq - head.get() >= entries.length) {
+					LockSupport.park(this);
+				}
+				parkedProducer = null;
+			}
+		}
+
+		return entries[(int) seq & mask];
+	}
+
+	/**
+	 * Method used by the producer to hand the claimed entry to the consumer.
+	 */
+	/* package */ void publish() {
+		// A full store, so that the check of the parked consumer below
+		// cannot be ordered before it.
+		tail.set(tail.get() + 1);
+		Thread consumer = parkedConsumer;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Method used by the consumer to retrieve the next published entry,
+	 * waiting for the producer if the ring is empty.
+	 *
+	 * @return The entry to read before calling <code>release()</code>.
+	 */
+	/* package */ E peek() {
+		long seq = head.get();
+		int spins = 0;
+		long idleAt = 0L;
+		while (seq >= cachedTail) {
+			cachedTail = tail.get();
+			if (seq < cachedTail) {
+				break;
+			} else if (spins < SPIN_LIMIT * 2) {
+				spins = backOff(spins);
+			} else if (idleAt == 0L) {
+				idleAt = System.nanoTime() + IDLE_NANOS;
+			} else if (System.nanoTime() - idleAt < 0) {
+				LockSupport.parkNanos(this, NAP_NANOS);
+			} else {
+				// Re-check once registered, so a publish cannot be missed.
+				parkedConsumer = Thread.currentThread();
+				if (seq >= tail.get()) {
+					LockSupport.park(this);
+				}
+				parkedConsumer = null;
+			}
+		}
+
+		return entries[(int) seq & mask];
+	}
+
+	/**
+	 * Method used by the consumer to hand the entry back to the producer.
+	 */
+	/* package */ void release() {
+		// A full store, so that the check of the parked producer below
+		// cannot be ordered before it.
+		head.set(head.get() + 1);
+		Thread producer = parkedProducer;
+		if (producer != null) {
+			LockSupport.unpark(producer);
+		}
+	}
+
+	/**
+	 * Helper method used to wait briefly for the other side of the ring,
+	 * spinning at first and then yielding.
+	 */
+	private static int backOff(int spins) {
+		if (spins >= SPIN_LIMIT) {
+			Thread.yield();
+		}
+
+		return spins + 1;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit 4 tests for <code>net.auxesia.AnytimeRunner</code>.
+ * 
+ * @see net.auxesia.AnytimeRunner
+ * 
+ * @author John Svazic
+ * @version 1.0
+ */
+public class AnytimeRunnerTest {
+	
+	/** A target that cannot be solved within the budgets used here. */
+	private static final String LONG_TARGET;
+	static {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			sb.append((char) (32 + (i % 90)));
+		}
+		LONG_TARGET = sb.toString();
+	}
+	
+	private ExecutorService executor;
+	
+	/**
+	 * Creates the executor before each test.
+	 */
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadExecutor();
+	}
+	
+	/**
+	 * Shuts the executor down after each test.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Method to test that a solvable population is solved.
+	 * 
+	 * @see net.auxesia.AnytimeRunner#start(ExecutorService, long, TimeUnit)
+	 */
+	@Test
+	public void testSolve() throws Exception {
+		AnytimeRunner runner = new AnytimeRunner(
+				new Population(1024, 0.8f, 0.1f, 0.05f));
+		Chromosome best = runner.start(executor, 30, TimeUnit.SECONDS).get();
+		
+		assertEquals("Hello, world!", best.getGene());
+		assertSame(best, runner.getBest());
+		assertTrue(runner.getGeneration() > 0);
+	}
+	
+	/**
+	 * Method to test that the runner returns on time with the best answer
+	 * found so far.
+	 * 
+	 * @see net.auxesia.AnytimeRunner#run(long, TimeUnit)
+	 */
+	@Test
+	public void testDeadline() {
+		Population pop = new Population(512, 0.8f, 0.1f, 0.05f, LONG_TARGET);
+		int initial = pop.getBest().getFitness();
+		AnytimeRunner runner = new AnytimeRunner(pop);
+		
+		long start = System.nanoTime();
+		Chromosome best = runner.run(200, TimeUnit.MILLISECONDS);
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		
+		assertTrue("Took " + elapsed + "ms", elapsed < 1000);
+		assertTrue(best.getFitness() > 0);
+		assertTrue(best.getFitness() <= initial);
+		assertEquals(512, pop.getPopulation().length);
+	}
+	
+	/**
+	 * Method to test that a generation taking much longer than the budget
+	 * is cut short close to the deadline, whether the time goes into 
+	 * breeding or into the local search.
+	 * 
+	 * @see net.auxesia.Population#setDeadline(long)
+	 */
+	@Test
+	public void testSlowGeneration() {
+		final long budget = 50;
+		
+		// Every selection takes 50us, so a generation takes over 150ms.
+		Population slowBreeding = new Population(8192, 0.8f, 0.1f, 0.05f) {
+			@Override
+			Chromosome[] selectParents() {
+				long end = System.nanoTime() + 50000L;
+				while (System.nanoTime() < end) {
+					// Spin.
+				}
+				return super.selectParents();
+			}
+		};
+		
+		// The local search takes a few milliseconds per elite member.
+		Population slowSearch = new Population(1024, 0.8f, 0.2f, 0.05f, 
+				LONG_TARGET);
+		slowSearch.setLocalSearch(200000, 1);
+		
+		for (Population pop : new Population[] { slowBreeding, slowSearch }) {
+			long start = System.nanoTime();
+			pop.evolve();
+			long full = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() 
+					- start);
+			assertTrue("A generation took " + full + "ms", full > 2 * budget);
+			
+			AnytimeRunner runner = new AnytimeRunner(pop);
+			start = System.nanoTime();
+			runner.run(budget, TimeUnit.MILLISECONDS);
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() 
+					- start);
+			
+			assertTrue("Took " + elapsed + "ms", elapsed < budget + 20);
+			assertEquals(1, runner.getGeneration());
+		}
+	}
+	
+	/**
+	 * Method to test cancelling a run through its <code>Future</code>.
+	 */
+	@Test
+	public void testCancel() throws InterruptedException, ExecutionException {
+		Population pop = new Population(512, 0.8f, 0.1f, 0.05f, LONG_TARGET);
+		AnytimeRunner runner = new AnytimeRunner(pop);
+		Future<Chromosome> future = runner.start(executor, 1, TimeUnit.HOURS);
+		
+		Thread.sleep(100);
+		assertTrue(future.cancel(true));
+		try {
+			future.get();
+			fail("Expected a CancellationException");
+		} catch (CancellationException e) {
+			// Expected
+		}
+		assertNotNull(runner.getBest());
+		
+		// The executor thread should be free again shortly.
+		Future<?> next = executor.submit(new Runnable() {
+			@Override
+			public void run() {
+			}
+		});
+		long start = System.nanoTime();
+		while (!next.isDone() 
+				&& System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1)) {
+			Thread.sleep(10);
+		}
+		assertTrue(next.isDone());
+	}
+}
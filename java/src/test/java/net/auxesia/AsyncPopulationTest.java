@@ -0,0 +1,86 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * JUnit 4 tests for <code>net.auxesia.AsyncPopulation</code>.
+ * 
+ * @see net.auxesia.AsyncPopulation
+ * 
+ * @author John Svazic
+ * @version 1.0
+ */
+public class AsyncPopulationTest {
+	
+	/**
+	 * Method to test <code>AsyncPopulation.evolve(int, long, TimeUnit)</code>.
+	 * 
+	 * @see net.auxesia.AsyncPopulation#evolve(int, long, TimeUnit)
+	 */
+	@Test
+	public void testEvolve() throws InterruptedException {
+		AsyncPopulation pop = new AsyncPopulation(1024, 0.8f, 0.05f);
+		Chromosome[] oldArr = pop.getPopulation();
+		
+		Chromosome best = pop.evolve(4, 30, TimeUnit.SECONDS);
+		assertEquals("Hello, world!", best.getGene());
+		assertSame(best, pop.getBest());
+		assertTrue(pop.getChildren() > 0);
+		
+		// Members are only replaced by fitter ones, so the population as a
+		// whole can only improve.
+		Chromosome[] newArr = pop.getPopulation();
+		assertEquals(oldArr.length, newArr.length);
+
+		// Several workers may each have found a solution before stopping,
+		// so any of them may sort first.
+		assertEquals(0, newArr[0].getFitness());
+		assertEquals(best.getGene(), newArr[0].getGene());
+		for (int i = 0; i < newArr.length; i++) {
+			assertTrue(newArr[i].getFitness() <= oldArr[i].getFitness());
+		}
+	}
+	
+	/**
+	 * Method to test that <code>AsyncPopulation</code> stops at the 
+	 * timeout.
+	 */
+	@Test
+	public void testTimeout() throws InterruptedException {
+		AsyncPopulation pop = new AsyncPopulation(64, 0.8f, 0.0f, 
+				"This target is far too long to be solved in 100ms");
+		long start = System.nanoTime();
+		Chromosome best = pop.evolve(2, 100, TimeUnit.MILLISECONDS);
+		long elapsed = System.nanoTime() - start;
+		
+		assertTrue(best.getFitness() > 0);
+		assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5));
+	}
+}
@@ -215,4 +215,67 @@ public class ChromosomeTest {
 		assertFalse(c2.equals(null));
 		assertFalse(c2.equals(new Object()));
 	}
+	
+	/**
+	 * Method to test <code>Chromosome.mate(Chromosome)</code> and 
+	 * <code>Chromosome.mutate()</code> on genes spanning many chunks.
+	 * 
+	 * @see net.auxesia.Chromosome#mate(Chromosome)
+	 * @see net.auxesia.Chromosome#mutate()
+	 */
+	@Test
+	public void testLongGene() {
+		char[] target = new char[100000];
+		for (int i = 0; i < target.length; i++) {
+			target[i] = (char) (32 + (i % 90));
+		}
+		
+		Chromosome c1 = Chromosome.generateRandom(target);
+		Chromosome c2 = Chromosome.generateRandom(target);
+		assertEquals(target.length, c1.getGene().length());
+		
+		for (int i = 0; i < 100; i++) {
+			Chromosome[] children = c1.mate(c2);
+			Chromosome m = children[0].mutate();
+			Chromosome r = m.replace(new int[] { i, 50000 + i }, 
+					new char[] { 'x', 'y' }, 2);
+			
+			// The incremental fitness and hash must match a fresh gene.
+			for (Chromosome c : new Chromosome[] { children[0], 
+					children[1], m, r }) {
+				Chromosome fresh = new Chromosome(c.getGene(), target);
+				assertEquals(fresh.getFitness(), c.getFitness());
+				assertEquals(fresh.geneHash(), c.geneHash());
+				assertEquals(fresh, c);
+			}
+			
+			c1 = children[1];
+			c2 = m;
+		}
+		
+		// Swapping two chunks keeps their sum, but not the gene hash.
+		String gene = c1.getGene();
+		int size = Chromosome.CHUNK_SIZE;
+		String swapped = gene.substring(size, 2 * size) 
+				+ gene.substring(0, size) + gene.substring(2 * size);
+		assertFalse(c1.geneHash() == new Chromosome(swapped, target)
+				.geneHash());
+	}
+	
+	/**
+	 * Method to test that a gene must be as long as its target.
+	 * 
+	 * @see net.auxesia.Chromosome#Chromosome(String, String)
+	 */
+	@Test
+	public void testLengthMismatch() {
+		for (String gene : new String[] { "Hello", "Hello, world!!" }) {
+			try {
+				new Chromosome(gene, "Hello, world!");
+				fail("Expected an IllegalArgumentException for " + gene);
+			} catch (IllegalArgumentException e) {
+				// Expected.
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit 4 tests for <code>net.auxesia.GAServer</code>.
+ * 
+ * @see net.auxesia.GAServer
+ * 
+ * @author John Svazic
+ * @version 1.0
+ */
+public class GAServerTest {
+	
+	private GAServer server;
+	
+	/**
+	 * Starts a server on an ephemeral port before each test.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		server = new GAServer(0, 2, 4);
+		server.start();
+	}
+	
+	/**
+	 * Stops the server after each test.
+	 */
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	/**
+	 * Method used to test submitting a job and streaming its progress.
+	 * 
+	 * @see net.auxesia.GAServer#submit(java.util.Map)
+	 */
+	@Test
+	public void testSubmitAndStream() throws IOException {
+		HttpURLConnection conn = open("/jobs", "POST");
+		conn.setDoOutput(true);
+		OutputStream out = conn.getOutputStream();
+		out.write("target=Hello%2C+server!&size=1024".getBytes("UTF-8"));
+		out.close();
+		
+		assertEquals(202, conn.getResponseCode());
+		String location = conn.getHeaderField("Location");
+		assertNotNull(location);
+		
+		// Stream the progress until the job is finished.
+		conn = open(location + "/progress", "GET");
+		assertEquals(200, conn.getResponseCode());
+		BufferedReader in = new BufferedReader(
+				new InputStreamReader(conn.getInputStream(), "UTF-8"));
+		String line, last = null, state = null;
+		while ((line = in.readLine()) != null) {
+			if (line.indexOf(' ') > 0) {
+				last = line;
+			} else {
+				state = line;
+			}
+		}
+		in.close();
+		
+		assertEquals("SOLVED", state);
+		assertTrue(last, last.endsWith(" 0 Hello, server!"));
+		
+		SolveJob job = server.getJob(Long.parseLong(
+				location.substring(location.lastIndexOf('/') + 1)));
+		assertEquals(SolveJob.State.SOLVED, job.getState());
+		assertEquals("Hello, server!", job.getBest().getGene());
+	}
+	
+	/**
+	 * Method used to test rejected requests.
+	 */
+	@Test
+	public void testBadRequests() throws IOException {
+		assertEquals(400, open("/jobs?size=-1", "POST").getResponseCode());
+		assertEquals(400, open("/jobs?elitism=x", "POST").getResponseCode());
+		assertEquals(400, open("/jobs?target=%zz", "POST").getResponseCode());
+		assertEquals(400, open("/jobs?target=Hello+%7Bworld%7D", "POST")
+				.getResponseCode());
+		assertEquals(400, open("/jobs?size=100000000", "POST")
+				.getResponseCode());
+		
+		// Each is allowed alone, but a generation would be too large.
+		StringBuilder target = new StringBuilder();
+		for (int i = 0; i < 1024; i++) {
+			target.append('a');
+		}
+		assertEquals(400, open("/jobs?size=" + GAServer.MAX_SIZE + "&target=" 
+				+ target, "POST").getResponseCode());
+		assertEquals(404, open("/jobs/12345", "GET").getResponseCode());
+	}
+	
+	/**
+	 * Method used to test cancelling a job.
+	 */
+	@Test
+	public void testCancel() throws IOException {
+		HttpURLConnection conn = open("/jobs?generations=100000000" 
+				+ "&mutation=0", "POST");
+		assertEquals(202, conn.getResponseCode());
+		String location = conn.getHeaderField("Location");
+		
+		assertEquals(200, open(location, "DELETE").getResponseCode());
+		SolveJob job = server.getJob(Long.parseLong(
+				location.substring(location.lastIndexOf('/') + 1)));
+		assertTrue(job.isDone());
+	}
+
+	/**
+	 * Method used to test the memory budget shared by all jobs.
+	 * 
+	 * @see net.auxesia.GAServer#submit(java.util.Map)
+	 */
+	@Test
+	public void testCharacterBudget() throws IOException {
+		GAServer small = new GAServer(0, 1, 4, 10000);
+		try {
+			Map<String, String> params = new HashMap<String, String>();
+			params.put("size", "500");
+			params.put("generations", "100000000");
+			params.put("mutation", "0");
+			
+			// One generation is 6500 characters, so only one job fits.
+			SolveJob job = small.submit(params);
+			assertNotNull(job);
+			assertEquals(6500L, job.getCharacters());
+			assertNull(small.submit(params));
+			
+			// A finished job only holds on to its best gene.
+			job.cancel();
+			assertEquals(13L, job.getCharacters());
+			assertNotNull(small.submit(params));
+		} finally {
+			small.stop();
+		}
+	}
+
+	/**
+	 * Helper method used to open a connection to the server.
+	 */
+	private HttpURLConnection open(String path, String method) 
+			throws IOException {
+		URL url = new URL("http://127.0.0.1:" + server.getPort() + path);
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestMethod(method);
+		
+		return conn;
+	}
+}
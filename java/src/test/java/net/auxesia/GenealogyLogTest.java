@@ -0,0 +1,165 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit 4 tests for <code>net.auxesia.GenealogyLog</code>.
+ * 
+ * @see net.auxesia.GenealogyLog
+ * 
+ * @author John Svazic
+ * @version 1.0
+ */
+public class GenealogyLogTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * Method to test recording <code>Chromosome</code>s.
+	 * 
+	 * @see net.auxesia.GenealogyLog#record(Chromosome, Chromosome, Chromosome, int, int, int, int)
+	 */
+	@Test
+	public void testRecord() throws IOException {
+		File dir = new File(folder.getRoot(), "log");
+		GenealogyLog log = new GenealogyLog(dir);
+		assertTrue(dir.isDirectory());
+		assertEquals(1L, log.getNextId());
+		
+		Chromosome p1 = Chromosome.generateRandom();
+		Chromosome p2 = Chromosome.generateRandom();
+		Chromosome child = p1.crossover(p2, 5).mutate(9);
+		assertEquals(1L, log.record(p1, null, null, GenealogyLog.RANDOM, 0, 
+				-1, -1));
+		assertEquals(2L, log.record(p2, null, null, GenealogyLog.RANDOM, 0, 
+				-1, -1));
+		assertEquals(3L, log.record(child, p1, p2, GenealogyLog.CROSSOVER 
+				| GenealogyLog.MUTATION, 1, 5, 9));
+		assertEquals(3L, child.id);
+		assertEquals(4L, log.getNextId());
+		log.close();
+		
+		GenealogyReader reader = new GenealogyReader(dir);
+		try {
+			assertEquals(3L, reader.size());
+			GenealogyReader.Record r = reader.get(3L);
+			assertEquals(3L, r.getId());
+			assertEquals(1L, r.getParent1());
+			assertEquals(2L, r.getParent2());
+			assertEquals(1, r.getGeneration());
+			assertEquals(child.getFitness(), r.getFitness());
+			assertEquals(5, r.getPivot());
+			assertEquals(9, r.getPoint());
+			assertEquals(GenealogyLog.CROSSOVER | GenealogyLog.MUTATION, 
+					r.getOperator());
+			
+			r = reader.get(1L);
+			assertEquals(0L, r.getParent1());
+			assertEquals(GenealogyLog.RANDOM, r.getOperator());
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Method to test that the log moves on to a new segment once the 
+	 * current one is full, and carries on after the last record when it is
+	 * opened again.
+	 */
+	@Test
+	public void testSegments() throws IOException {
+		File dir = folder.getRoot();
+		GenealogyLog log = new GenealogyLog(dir, 4);
+		Chromosome[] arr = new Chromosome[15];
+		for (int i = 0; i < 10; i++) {
+			arr[i] = Chromosome.generateRandom();
+			log.record(arr[i], (i > 0) ? arr[i - 1] : null, null, 
+					GenealogyLog.MUTATION, i, -1, i);
+		}
+		log.close();
+		assertEquals(3, GenealogyLog.listSegments(dir).length);
+		
+		// Carry on in the last, partly filled segment.
+		log = new GenealogyLog(dir, 4);
+		assertEquals(11L, log.getNextId());
+		for (int i = 10; i < arr.length; i++) {
+			arr[i] = Chromosome.generateRandom();
+			log.record(arr[i], arr[i - 1], null, GenealogyLog.MUTATION, i, 
+					-1, i);
+		}
+		log.close();
+		assertEquals(4, GenealogyLog.listSegments(dir).length);
+		
+		GenealogyReader reader = new GenealogyReader(dir);
+		try {
+			assertEquals(15L, reader.size());
+			for (int i = 0; i < arr.length; i++) {
+				GenealogyReader.Record r = reader.get(i + 1);
+				assertEquals(i + 1, r.getId());
+				assertEquals(i, r.getParent1());
+				assertEquals(arr[i].getFitness(), r.getFitness());
+				assertEquals(i, r.getPoint());
+			}
+			assertNull(reader.get(0L));
+			assertNull(reader.get(16L));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Method to test the handling of invalid arguments and a closed log.
+	 */
+	@Test
+	public void testErrors() throws IOException {
+		try {
+			new GenealogyLog(folder.getRoot(), 0);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		
+		GenealogyLog log = new GenealogyLog(folder.getRoot());
+		log.record(Chromosome.generateRandom(), null, null, 
+				GenealogyLog.RANDOM, 0, -1, -1);
+		log.close();
+		try {
+			log.record(Chromosome.generateRandom(), null, null, 
+					GenealogyLog.RANDOM, 0, -1, -1);
+			fail("Expected an IllegalStateException");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+}
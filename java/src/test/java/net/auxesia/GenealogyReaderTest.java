@@ -0,0 +1,159 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit 4 tests for <code>net.auxesia.GenealogyReader</code>.
+ * 
+ * @see net.auxesia.GenealogyReader
+ * 
+ * @author John Svazic
+ * @version 1.0
+ */
+public class GenealogyReaderTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * Method to test the lineage of a solution found by a 
+	 * <code>Population</code>.
+	 * 
+	 * @see net.auxesia.GenealogyReader#getLineage(long)
+	 */
+	@Test
+	public void testLineage() throws IOException {
+		Population pop = new Population(1024, 0.8f, 0.1f, 0.05f);
+		pop.setLocalSearch(4, 5);
+		Chromosome best = evolve(pop);
+		assertLineage(best, 1024);
+	}
+	
+	/**
+	 * Method to test the lineage of a solution found by a 
+	 * <code>PipelinedPopulation</code>.
+	 * 
+	 * @see net.auxesia.GenealogyReader#getLineage(long)
+	 */
+	@Test
+	public void testPipelinedLineage() throws IOException {
+		PipelinedPopulation pop = new PipelinedPopulation(1023, 0.8f, 0.1f, 
+				0.05f);
+		try {
+			Chromosome best = evolve(pop);
+			assertLineage(best, 1023);
+		} finally {
+			pop.shutdown();
+		}
+	}
+	
+	/**
+	 * Method to test looking up ids that are not in the log.
+	 * 
+	 * @see net.auxesia.GenealogyReader#get(long)
+	 */
+	@Test
+	public void testMissing() throws IOException {
+		GenealogyReader reader = new GenealogyReader(folder.getRoot());
+		try {
+			assertEquals(0L, reader.size());
+			assertNull(reader.get(1L));
+			assertTrue(reader.getLineage(1L).isEmpty());
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Helper method used to evolve a population to a solution while 
+	 * recording its genealogy.
+	 */
+	private Chromosome evolve(Population pop) throws IOException {
+		GenealogyLog log = new GenealogyLog(folder.getRoot(), 4096);
+		pop.setGenealogy(log);
+		for (int i = 0; i < 2048 && pop.getBest().getFitness() > 0; i++) {
+			pop.evolve();
+		}
+		log.close();
+		
+		assertEquals(0, pop.getBest().getFitness());
+		return pop.getBest();
+	}
+	
+	/**
+	 * Helper method used to check that the lineage of a solution leads 
+	 * back to the initial population through valid records.
+	 */
+	private void assertLineage(Chromosome best, int size) throws IOException {
+		GenealogyReader reader = new GenealogyReader(folder.getRoot());
+		try {
+			List<GenealogyReader.Record> lineage = reader.getLineage(best.id);
+			assertEquals(best.id, lineage.get(0).getId());
+			assertEquals(0, lineage.get(0).getFitness());
+			
+			long last = Long.MAX_VALUE;
+			int roots = 0;
+			for (GenealogyReader.Record r : lineage) {
+				// Newest first, and parents always come before children.
+				assertTrue(r.getId() < last);
+				last = r.getId();
+				assertTrue(r.getParent1() < r.getId());
+				assertTrue(r.getParent2() < r.getId());
+				
+				int op = r.getOperator();
+				if (op == GenealogyLog.RANDOM) {
+					assertTrue(r.getId() <= size);
+					assertEquals(0, r.getGeneration());
+					assertEquals(0L, r.getParent1());
+					++roots;
+				} else if (op == GenealogyLog.LOCAL_SEARCH) {
+					assertTrue(r.getParent1() > 0L);
+					assertEquals(0L, r.getParent2());
+				} else {
+					assertTrue(r.getParent1() > 0L);
+					assertTrue(r.getGeneration() > 0);
+					assertEquals((op & GenealogyLog.CROSSOVER) != 0, 
+							r.getParent2() > 0L);
+					assertEquals((op & GenealogyLog.CROSSOVER) != 0, 
+							r.getPivot() >= 0);
+					assertEquals((op & GenealogyLog.MUTATION) != 0, 
+							r.getPoint() >= 0);
+				}
+			}
+			assertTrue(roots > 0);
+		} finally {
+			reader.close();
+		}
+	}
+}
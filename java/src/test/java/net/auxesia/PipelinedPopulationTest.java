@@ -0,0 +1,178 @@
+/*
+* The MIT License
+* 
+* Copyright (c) 2011 John Svazic
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in
+* all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+* THE SOFTWARE.
+*/
+package net.auxesia;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * JUnit 4 tests for <code>net.auxesia.PipelinedPopulation</code>.
+ * 
+ * @see net.auxesia.PipelinedPopulation
+ * 
+ * @author John Svazic
+ * @version 1.0
+ */
+public class PipelinedPopulationTest {
+	
+	/**
+	 * Method to test <code>PipelinedPopulation.evolve()</code>.
+	 * 
+	 *  @see net.auxesia.PipelinedPopulation#evolve()
+	 */
+	@Test
+	public void testEvolve() {
+		// An odd size exercises the slot with room for only one child.
+		PipelinedPopulation pop = new PipelinedPopulation(1023, 0.8f, 0.1f, 
+				0.05f);
+		try {
+			Chromosome[] oldArr = pop.getPopulation();
+			pop.evolve();
+			Chromosome[] newArr = pop.getPopulation();
+			
+			assertEquals(oldArr.length, newArr.length);
+			for (Chromosome c : newArr) {
+				assertNotNull(c);
+			}
+			
+			// Check to ensure that the elitism took.
+			final int elitismCount = Math.round(1023 * 0.1f);
+			for (int i = 0; i < elitismCount; i++) {
+				assertTrue(Arrays.asList(newArr).contains(oldArr[i]));
+			}
+			
+			// Keep evolving until the target is found.
+			for (int i = 0; i < 2048 && pop.getBest().getFitness() > 0; i++) {
+				pop.evolve();
+			}
+			assertEquals("Hello, world!", pop.getBest().getGene());
+		} finally {
+			pop.shutdown();
+		}
+	}
+	
+	/**
+	 * Method to test that closing the population stops the stage threads,
+	 * and that evolving it again starts them again.
+	 * 
+	 * @see net.auxesia.PipelinedPopulation#close()
+	 */
+	@Test
+	public void testClose() {
+		int before = countStageThreads();
+		PipelinedPopulation pop = new PipelinedPopulation(256, 0.8f, 0.1f, 
+				0.05f);
+		pop.evolve();
+		assertEquals(before + 2, countStageThreads());
+		pop.close();
+		assertEquals(before, countStageThreads());
+		
+		pop.evolve();
+		assertEquals(before + 2, countStageThreads());
+		pop.close();
+		pop.close();
+		assertEquals(before, countStageThreads());
+	}
+	
+	/**
+	 * Method to test that a failure in any stage is passed back to the 
+	 * caller of <code>evolve()</code>, and that the pipeline still works 
+	 * afterwards.
+	 * 
+	 * @see net.auxesia.PipelinedPopulation#evolve()
+	 */
+	@Test
+	public void testStageFailure() {
+		final int[] failIn = new int[1];
+		final Chromosome shortGene = new Chromosome("Hi", "Hi");
+		PipelinedPopulation pop = new PipelinedPopulation(512, 0.8f, 0.1f, 
+				0.05f) {
+			@Override
+			Chromosome[] selectParents() {
+				Chromosome[] parents = super.selectParents();
+				if (failIn[0] == 1) {
+					throw new IllegalArgumentException("selection");
+				} else if (failIn[0] == 2) {
+					// Crossing over with a shorter gene fails.
+					parents[1] = shortGene;
+				}
+				return parents;
+			}
+			
+			@Override
+			Chromosome unique(Chromosome c) {
+				if (failIn[0] == 3) {
+					throw new IllegalArgumentException("ordering");
+				}
+				return super.unique(c);
+			}
+		};
+		
+		try {
+			for (int stage = 1; stage <= 3; stage++) {
+				Chromosome[] oldArr = pop.getPopulation();
+				failIn[0] = stage;
+				try {
+					pop.evolve();
+					fail("Expected an exception from stage " + stage);
+				} catch (IllegalStateException e) {
+					assertTrue(stage < 3);
+					assertNotNull(e.getCause());
+				} catch (IllegalArgumentException e) {
+					assertEquals(3, stage);
+				}
+				
+				// The failed generation is abandoned.
+				assertTrue(Arrays.equals(oldArr, pop.getPopulation()));
+				
+				failIn[0] = 0;
+				pop.evolve();
+				assertEquals(512, pop.getPopulation().length);
+				for (Chromosome c : pop.getPopulation()) {
+					assertEquals(13, c.getGene().length());
+				}
+			}
+		} finally {
+			pop.close();
+		}
+	}
+	
+	/**
+	 * Helper method used to count the live stage threads.
+	 */
+	private static int countStageThreads() {
+		int count = 0;
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if (t.isAlive() && (t.getName().equals("ga-selection") 
+					|| t.getName().equals("ga-variation"))) {
+				++count;
+			}
+		}
+		
+		return count;
+	}
+}
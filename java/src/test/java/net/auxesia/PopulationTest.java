@@ -26,6 +26,8 @@ package net.auxesia;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -141,4 +143,116 @@ public class PopulationTest {
 		assertTrue(counter >= elitismCount);
 		assertTrue(counter < oldArr.length);
 	}
+	
+	/**
+	 * Method to test <code>Population.setLocalSearch(int, int)</code>.
+	 * 
+	 *  @see net.auxesia.Population#setLocalSearch(int, int)
+	 */
+	@Test
+	public void testLocalSearch() {
+		Population pop = new Population(1024, 0.8f, 0.1f, 0.05f);
+		pop.setLocalSearch(32, 2);
+		
+		// The local search only runs every second generation.
+		pop.evolve();
+		assertEquals(0, pop.getLocalSearchEvaluations());
+		
+		int before = pop.getBest().getFitness();
+		pop.evolve();
+		assertTrue(pop.getLocalSearchEvaluations() > 0);
+		assertTrue(pop.getLocalSearchEvaluations() <= 32 * 103);
+		assertTrue(pop.getLocalSearchImprovements() > 0);
+		assertTrue(pop.getBest().getFitness() < before);
+		
+		// The elite must still be sorted after being refined.
+		Chromosome[] arr = pop.getPopulation();
+		for (int i = 1; i < arr.length; i++) {
+			assertTrue(arr[i - 1].compareTo(arr[i]) <= 0);
+		}
+		
+		try {
+			pop.setLocalSearch(8, 0);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+	
+	/**
+	 * Method to test <code>Population.setUnique(boolean)</code>.
+	 * 
+	 *  @see net.auxesia.Population#setUnique(boolean)
+	 */
+	@Test
+	public void testUnique() {
+		Population pop = new Population(1024, 0.8f, 0.1f, 0.05f);
+		pop.setUnique(true);
+		for (int i = 0; i < 20; i++) {
+			pop.evolve();
+		}
+		assertTrue(pop.getDuplicates() > 0);
+		
+		// Every gene in the population should now be different.
+		Set<String> genes = new HashSet<String>();
+		for (Chromosome c : pop.getPopulation()) {
+			genes.add(c.getGene());
+		}
+		assertEquals(1024, genes.size());
+		
+		// Generations cut short must not carry duplicates over either, with
+		// or without screening.
+		for (float ratio : new float[] { 1.0f, 0.5f }) {
+			pop.setScreening(ratio);
+			Thread.currentThread().interrupt();
+			try {
+				pop.evolve();
+			} finally {
+				Thread.interrupted();
+			}
+			
+			genes.clear();
+			for (Chromosome c : pop.getPopulation()) {
+				genes.add(c.getGene());
+			}
+			assertEquals(1024, genes.size());
+		}
+	}
+	
+	/**
+	 * Method to test <code>Population.setScreening(float)</code>.
+	 * 
+	 *  @see net.auxesia.Population#setScreening(float)
+	 */
+	@Test
+	public void testScreening() {
+		Population pop = new Population(1024, 0.8f, 0.1f, 0.05f);
+		pop.setScreening(0.25f);
+		for (int i = 0; i < 5; i++) {
+			pop.evolve();
+		}
+		
+		// A quarter of the screened candidates should be evaluated, plus 
+		// any re-mutations of duplicates, which are far fewer than the 
+		// candidates that were screened out.
+		assertTrue(pop.getScreened() > 0);
+		assertTrue(pop.getEvaluated() >= pop.getScreened() / 4);
+		assertTrue(pop.getEvaluated() < pop.getScreened());
+		assertTrue(pop.getSurrogateHitRate() >= 0.0);
+		assertTrue(pop.getSurrogateHitRate() <= 1.0);
+		
+		// The population must still be complete and sorted.
+		Chromosome[] arr = pop.getPopulation();
+		assertEquals(1024, arr.length);
+		for (int i = 1; i < arr.length; i++) {
+			assertTrue(arr[i - 1].compareTo(arr[i]) <= 0);
+		}
+		
+		try {
+			pop.setScreening(0.0f);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
 }
\ No newline at end of file